@@ -1,125 +1,1113 @@
 package com.cyberbot.checkers.game.ai;
 
+import com.cyberbot.checkers.game.logic.BitBoard;
 import com.cyberbot.checkers.game.logic.Destination;
 import com.cyberbot.checkers.game.logic.Grid;
 import com.cyberbot.checkers.game.logic.GridEntry;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
 import com.cyberbot.checkers.game.logic.PlayerNum;
+import com.cyberbot.checkers.game.logic.Position;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Used to generate best moves based on board value. Utilizes alpha-beta-pruning Algorithm.
+ *
+ * The grid passed to {@link AiPlayer#executeMove(Grid)} is exported to an immutable {@link Position}
+ * right away and never read again during the search, except for the coordinates of its entries.
+ * The search is run by {@link SearchWorker}s, each working on its own {@link Grid} restored from
+ * the position, making and unmaking moves in place.
+ *
+ * When constructed with a time budget, the search deepens iteratively one ply at a time and returns
+ * the best move of the last completed iteration once the budget runs out.
+ *
+ * Results are remembered in a {@link TranspositionTable}, which is kept between searches. Its
+ * memory cap can be set with {@link AiPlayer#setTranspositionTableSize(long)}.
+ *
+ * Positions at the nominal depth aren't evaluated in the middle of capture exchanges - the search
+ * goes on with captures only, until the position is quiet (see {@link AiPlayer#setQuiescenceNodeLimit(int)}).
+ *
+ * Children of every node are searched in the order decided by {@link MoveOrdering}. Counters
+ * describing the last search are available through {@link AiPlayer#getStatistics()}.
+ *
+ * Moves after the first one are searched with a null window first (principal variation search),
+ * and each iteration of iterative deepening starts with a narrow window around the score of
+ * the previous one (see {@link AiPlayer#setAspirationWindow(int)}).
+ *
+ * The search is selective - quiet moves late in the order are searched to a reduced depth
+ * (see {@link AiPlayer#setLateMoveReductionsEnabled(boolean)}) and quiet moves close to the leaves
+ * are skipped when the position is too bad for them to matter (see {@link AiPlayer#setFutilityPruningEnabled(boolean)}).
+ *
+ * The principal variation of the chosen move is kept until the next search, along with scores of
+ * moves in the position after the reply predicted by it. If the opponent makes that reply, iterative
+ * deepening starts from those scores instead of from scratch (see {@link AiPlayer#setSearchTreeReuseEnabled(boolean)}).
+ *
+ * Endgames with kings only can be looked up in an {@link EndgameTablebase} instead of being
+ * searched (see {@link AiPlayer#setEndgameTablebase(EndgameTablebase)}). Likewise, moves close to
+ * the start of the game can be taken from an {@link OpeningBook} (see {@link AiPlayer#setOpeningBook(OpeningBook)}).
+ *
+ * While the opponent is thinking, the AI can search the position after the reply it expects
+ * (see {@link AiPlayer#startPondering(Grid)}).
+ *
+ * Searches can also be run in the background with {@link AiPlayer#startSearch(Grid, SearchListener)},
+ * which reports progress after each iteration and can be cancelled at any time.
+ *
+ * More than one thread can be used (see {@link AiPlayer#setThreadCount(int)}) - either splitting moves
+ * of the root between threads of a {@link ForkJoinPool}, or with Lazy SMP, where threads search
+ * the same tree and share results through the transposition table (see {@link ParallelMode}).
+ *
+ * Moves are encoded as ints with the source square in upper and the destination square
+ * in lower 16 bits (see {@link com.cyberbot.checkers.game.logic.BitBoard#getSquare(int, int)}).
  */
 public class AiPlayer {
+    /**
+     * Default memory cap of the transposition table in bytes.
+     */
+    public static final long DEFAULT_TRANSPOSITION_TABLE_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Default limit of nodes visited by a single quiescence search.
+     */
+    public static final int DEFAULT_QUIESCENCE_NODE_LIMIT = 2000;
+
+    /**
+     * Default distance of bounds of the aspiration window from the score of the previous iteration.
+     */
+    public static final int DEFAULT_ASPIRATION_WINDOW = 20;
+
+    /**
+     * Number of time budgets after which pondering stops, even if the opponent hasn't moved yet.
+     * The search of the pondered position can only use one budget once the opponent moves, so
+     * going on much longer mostly drains the battery.
+     */
+    private static final int PONDER_TIME_BUDGETS = 4;
+
     private final PlayerNum aiNum;
     private final PlayerNum adversaryNum;
     private GridEntry aiMoveSource;
     private Destination aiMoveDestination;
-    private Tree gameTree;
     private final int lvl;
+    private final long timeBudget;
+    private long transpositionTableSize = DEFAULT_TRANSPOSITION_TABLE_SIZE;
+    private boolean moveOrderingEnabled = true;
+    private int quiescenceNodeLimit = DEFAULT_QUIESCENCE_NODE_LIMIT;
+    private boolean principalVariationSearchEnabled = true;
+    private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+    private boolean lateMoveReductionsEnabled = true;
+    private boolean futilityPruningEnabled = true;
+    private boolean searchTreeReuseEnabled = true;
+    private EndgameTablebase endgameTablebase;
+    private OpeningBook openingBook;
+    private int threadCount = 1;
+    private ParallelMode parallelMode = ParallelMode.ROOT_SPLIT;
+    private final SearchStatistics statistics = new SearchStatistics();
 
+    private SearchWorker[] workers;
+    private List<RootMove> rootMoves;
+    private int rootScore;
+    private RootMove previousMove;
+    private Position predictedPosition;
+    private boolean searchTreeReused;
+    private boolean bookMove;
+
+    // Pondering state. The thread is stopped or its result taken over only while holding ponderLock,
+    // since pondering can be stopped from another thread than the one searching
+    private final Object ponderLock = new Object();
+    private volatile Thread ponderThread;
+    private volatile boolean pondering;
+    private long ponderHash;
+    private long ponderStart;
+    private volatile RootMove ponderResult;
+    private RootMove ponderPreviousMove;
+    private Position ponderPredictedPosition;
+    private boolean ponderHit;
+    private TranspositionTable transpositionTable;
+    private ForkJoinPool pool;
+
+    // Iterative deepening state
+    private volatile long deadline;
+    private volatile boolean abortAllowed;
+    private volatile boolean aborted;
+    private int completedDepth;
+
+    // Background search state
+    private volatile boolean cancelled;
+    private volatile Thread searchThread;
+    private volatile SearchListener listener;
+    private volatile Move bestMoveSoFar;
+
+    /**
+     * Constructs {@link AiPlayer} that always searches to the fixed depth.
+     *
+     * @param aiNum Player controlled by the AI
+     * @param adversaryNum Opponent of the AI
+     * @param lvl Search depth in plies
+     */
     public AiPlayer(PlayerNum aiNum, PlayerNum adversaryNum, int lvl) {
+        this(aiNum, adversaryNum, lvl, 0);
+    }
+
+    /**
+     * Constructs {@link AiPlayer} that uses iterative deepening limited by a time budget.
+     *
+     * @param aiNum Player controlled by the AI
+     * @param adversaryNum Opponent of the AI
+     * @param lvl Maximum search depth in plies
+     * @param timeBudget Time budget of a single search in milliseconds. When zero or negative,
+     *                   the search always goes to the depth of {@code lvl}
+     */
+    public AiPlayer(PlayerNum aiNum, PlayerNum adversaryNum, int lvl, long timeBudget) {
         this.aiNum = aiNum;
         this.adversaryNum = adversaryNum;
         this.lvl = lvl;
+        this.timeBudget = timeBudget;
     }
 
-    private void buildTree(Grid rootGrid) {
-        gameTree = new Tree();
-        Node root = new Node(rootGrid, true, lvl);
-        gameTree.setRoot(root);
+    /**
+     * Set memory cap of the transposition table. A bigger table remembers more positions,
+     * which lets the search go deeper in the same time. The table is cleared when resized.
+     *
+     * @param bytes Memory cap in bytes. Zero disables the transposition table
+     */
+    public void setTranspositionTableSize(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Transposition table size cannot be negative");
+        }
+
+        transpositionTableSize = bytes;
+        workers = null;
+    }
+
+    /**
+     * Enable or disable {@link MoveOrdering}. When disabled, only the hash move is searched first
+     * and the rest of moves are searched in the order of generation. Meant for measuring the gain
+     * of move ordering with {@link AiPlayer#getStatistics()}.
+     *
+     * @param enabled Whether to order moves
+     */
+    public void setMoveOrderingEnabled(boolean enabled) {
+        moveOrderingEnabled = enabled;
+    }
+
+    boolean isMoveOrderingEnabled() {
+        return moveOrderingEnabled;
     }
 
     /**
-     * Updates aiMoveSource and aiMoveDestination based on given grid
+     * Enable or disable principal variation search. When enabled, every move but the first one is
+     * searched with a null window, which only tells if the move is better than the best one so far,
+     * and searched again with the full window if it is. With good move ordering it visits fewer
+     * nodes than plain alpha-beta. Meant for measuring the gain with {@link AiPlayer#getStatistics()}.
+     *
+     * @param enabled Whether to use principal variation search
+     */
+    public void setPrincipalVariationSearchEnabled(boolean enabled) {
+        principalVariationSearchEnabled = enabled;
+    }
+
+    boolean isPrincipalVariationSearchEnabled() {
+        return principalVariationSearchEnabled;
+    }
+
+    /**
+     * Set the aspiration window of iterative deepening. Every iteration after the first one
+     * searches the root with bounds this far from the score of the previous iteration, which gives
+     * more cutoffs as long as the score doesn't change much. If it falls outside of the window,
+     * the root is searched again with the failed bound removed.
+     *
+     * @param window Distance of bounds from the previous score. Zero disables aspiration windows
+     */
+    public void setAspirationWindow(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Aspiration window cannot be negative");
+        }
+
+        aspirationWindow = window;
+    }
+
+    /**
+     * Enable or disable late move reductions. When enabled, quiet moves that move ordering puts
+     * late in the order are searched a ply shallower with a null window, and searched again to
+     * the full depth only if they turn out better than the best move so far. The search goes deeper
+     * in the same time, but a move that only pays off at the full depth can be missed.
+     *
+     * @param enabled Whether to reduce late moves
+     */
+    public void setLateMoveReductionsEnabled(boolean enabled) {
+        lateMoveReductionsEnabled = enabled;
+    }
+
+    boolean isLateMoveReductionsEnabled() {
+        return lateMoveReductionsEnabled;
+    }
+
+    /**
+     * Enable or disable futility pruning. When enabled, quiet moves one or two plies above
+     * the leaves aren't searched at all if the static value of the position
+     * (see {@link Grid#getValue(PlayerNum, PlayerNum)}) is so far below the best score so far that
+     * a quiet move can't make up for it.
+     *
+     * @param enabled Whether to prune futile moves
+     */
+    public void setFutilityPruningEnabled(boolean enabled) {
+        futilityPruningEnabled = enabled;
+    }
+
+    boolean isFutilityPruningEnabled() {
+        return futilityPruningEnabled;
+    }
+
+    /**
+     * Enable or disable reuse of the previous search. When enabled, the search keeps scores of moves
+     * in the position after the reply it predicts, searched two plies shallower than the root. If
+     * the opponent makes that reply, iterative deepening takes those scores as the result of
+     * the iteration at their depth and goes on from the next one, skipping the iterations the previous
+     * search has already done. Only searches with a time budget deepen iteratively, so the fixed depth
+     * search is unaffected. Meant for measuring the gain with {@link AiPlayer#getStatistics()}.
+     *
+     * @param enabled Whether to reuse the previous search
+     */
+    public void setSearchTreeReuseEnabled(boolean enabled) {
+        searchTreeReuseEnabled = enabled;
+    }
+
+    /**
+     * Set the limit of nodes a single quiescence search can visit. Quiescence search runs at every
+     * leaf of the main search and follows captures until none are left, so long exchanges could
+     * otherwise take a lot of time. When the limit is hit, remaining positions are evaluated
+     * statically.
+     *
+     * @param limit Maximum number of nodes. Zero disables quiescence search, so leaves are always
+     *              evaluated statically
+     */
+    public void setQuiescenceNodeLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Quiescence node limit cannot be negative");
+        }
+
+        quiescenceNodeLimit = limit;
+    }
+
+    int getQuiescenceNodeLimit() {
+        return quiescenceNodeLimit;
+    }
+
+    /**
+     * Set the tablebase probed by the search. Positions found in it get their exact scores without
+     * being searched, and once the game gets into one, the AI plays perfectly with a search of
+     * a single ply. The tablebase is ignored if it's been generated for another board or other rules.
+     *
+     * @param tablebase {@link EndgameTablebase} to be used, null to search endgames as usual
+     */
+    public void setEndgameTablebase(EndgameTablebase tablebase) {
+        endgameTablebase = tablebase;
+    }
+
+    EndgameTablebase getEndgameTablebase() {
+        return endgameTablebase;
+    }
+
+    /**
+     * Set the book consulted before every search. When the position is found in it, its move is
+     * played right away without any search. The book is ignored if it's been generated for another
+     * board or other rules.
+     *
+     * @param book {@link OpeningBook} to be used, null to search openings as usual
+     */
+    public void setOpeningBook(OpeningBook book) {
+        openingBook = book;
+    }
+
+    OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * Set the number of threads used by the search. With a single thread the search runs on
+     * the thread calling {@link AiPlayer#executeMove(Grid)}. Otherwise threads are used as set by
+     * {@link AiPlayer#setParallelMode(ParallelMode)}.
+     *
+     * @param threads Number of threads, at least 1
+     */
+    public void setThreadCount(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Search needs at least one thread");
+        }
+
+        threadCount = threads;
+        workers = null;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Set how multiple threads are used by the search.
+     *
+     * With {@link ParallelMode#ROOT_SPLIT}, the first move of the root is searched alone, to get
+     * a bound for the rest, and the remaining moves are split between threads, which share the best
+     * score found so far. The chosen move is the same as the one chosen by the serial search of
+     * the same depth, as long as the transposition table is disabled.
+     *
+     * With {@link ParallelMode#LAZY_SMP}, the calling thread searches the root just like the serial
+     * search, while helper threads search the same root, every other one a ply deeper. Helpers fill
+     * the shared transposition table with results the main thread can use, which lets it finish
+     * sooner. Helpers are stopped once the main thread is done.
+     *
+     * @param mode {@link ParallelMode} to be used
+     */
+    public void setParallelMode(ParallelMode mode) {
+        parallelMode = mode;
+    }
+
+    public ParallelMode getParallelMode() {
+        return parallelMode;
+    }
+
+    /**
+     * Get counters collected during the last search, summed up over all threads.
+     *
+     * @return {@link SearchStatistics} of the last search
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the depth of the last completed search iteration.
+     *
+     * @return Depth in plies
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Tell if the last search skipped iterations of iterative deepening done by the previous search.
+     *
+     * @return {@code true} if the opponent made the reply predicted by the previous search
+     */
+    public boolean isSearchTreeReused() {
+        return searchTreeReused;
+    }
+
+    boolean isAborted() {
+        return aborted || cancelled;
+    }
+
+    /**
+     * Stop the search started with {@link AiPlayer#startSearch(Grid, SearchListener)}, including
+     * pondering it may be waiting for.
+     */
+    void cancelSearch() {
+        cancelled = true;
+    }
+
+    Move getBestMoveSoFar() {
+        return bestMoveSoFar;
+    }
+
+    /**
+     * Abort the search if it has run out of time. The first iteration of iterative deepening
+     * is never aborted, since its result is needed regardless of the budget.
+     */
+    void checkDeadline() {
+        if (abortAllowed && System.nanoTime() >= deadline) {
+            aborted = true;
+        }
+    }
+
+    ForkJoinPool getPool() {
+        return pool;
+    }
+
+    private void prepareWorkers() {
+        if (workers == null) {
+            transpositionTable = transpositionTableSize > 0 ? new TranspositionTable(transpositionTableSize) : null;
+
+            workers = new SearchWorker[threadCount];
+            for (int i = 0; i < threadCount; ++i) {
+                workers[i] = new SearchWorker(this, aiNum, adversaryNum);
+                workers[i].setTranspositionTable(transpositionTable);
+            }
+        }
+
+        if (threadCount > 1 && (pool == null || pool.getParallelism() != threadCount)) {
+            if (pool != null) pool.shutdown();
+            pool = new ForkJoinPool(threadCount);
+        }
+    }
+
+    /**
+     * Updates aiMoveSource and aiMoveDestination based on given grid. If the position is the one
+     * being pondered (see {@link AiPlayer#startPondering(Grid)}), the result of pondering is used.
      *
      * @param grid current state of grid for which move should be generated
      */
     public void executeMove(Grid grid) {
-        buildTree(grid);
-        gameTree.getRoot().setScore(alphaBeta(gameTree.getRoot(), lvl, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1, true));
-        final Node bestChild = findBestChild(gameTree.getRoot());
-        aiMoveSource = bestChild.getSrc();
-        aiMoveDestination = bestChild.getDst();
+        cancelled = false;
+
+        final Move move = findMove(grid.toPosition(), null);
+        if (move == null) {
+            aiMoveSource = null;
+            aiMoveDestination = null;
+            return;
+        }
+
+        aiMoveSource = grid.getEntryByCoords(move.getSrcX(), move.getSrcY());
+        aiMoveDestination = getDestination(grid, move);
     }
 
+    /**
+     * Get {@link Destination} of {@code move} in {@code grid}. The capture path that has been
+     * searched is chosen, if there are several between the same entries.
+     *
+     * @param grid grid of the searched position
+     * @param move move found in the position
+     * @return {@link Destination} of the move or null if it isn't legal
+     */
+    private Destination getDestination(Grid grid, Move move) {
+        if (move.getMoveIndex() != -1) return grid.getDestination(aiNum, move.getMoveIndex());
+
+        // Book moves are stored without the path, they're made along the first one
+        return grid.getDestination(grid.getEntryByCoords(move.getSrcX(), move.getSrcY()),
+                grid.getEntryByCoords(move.getDstX(), move.getDstY()));
+    }
 
     /**
-     * Utility function used to find the best node from children of given node
+     * Search for the move in a background thread, without blocking the caller. The search can be
+     * stopped with {@link SearchHandle#cancel(boolean)}, which takes effect within a few hundred
+     * nodes. Once the search has finished without being cancelled, aiMoveSource and
+     * aiMoveDestination are updated like by {@link AiPlayer#executeMove(Grid)}.
+     *
+     * Only one search can run at a time and neither {@link AiPlayer#executeMove(Grid)} nor
+     * {@link AiPlayer#startPondering(Grid)} may be called until it's done.
      *
-     * @param parent parent node of search
-     * @return child with highest score
+     * @param grid current state of grid for which move should be generated. A snapshot of it is
+     *             taken before returning, so it can be modified while the search is running
+     * @param listener receives progress of the search, can be null
+     * @return {@link Future} of the chosen move
      */
-    private Node findBestChild(Node parent) {
-        Node bestNode = new Node(null, null, Integer.MIN_VALUE);
-        for (Node child : parent.getChildren()) {
-            if (child.getScore() > bestNode.getScore()) {
-                bestNode = child;
+    public SearchHandle startSearch(Grid grid, SearchListener listener) {
+        cancelled = false;
+
+        final Position position = grid.toPosition();
+        final SearchHandle handle = new SearchHandle(this, () -> {
+            final Move move = findMove(position, listener);
+
+            // Entries are taken from the snapshot, since the grid may have been modified meanwhile
+            if (move == null) {
+                aiMoveSource = null;
+                aiMoveDestination = null;
+            } else {
+                final Destination destination = getDestination(new Grid(position), move);
+
+                aiMoveSource = grid.getEntryByCoords(move.getSrcX(), move.getSrcY());
+                aiMoveDestination = destination != null ? grid.translateDestination(destination) : null;
+            }
+
+            if (listener != null && !cancelled) {
+                listener.onFinished(move);
             }
+
+            return move;
+        });
+
+        final Thread thread = new Thread(handle, "AiPlayer search");
+        thread.setDaemon(true);
+        searchThread = thread;
+        thread.start();
+
+        return handle;
+    }
+
+    /**
+     * Find the move in given position.
+     *
+     * @param position position for which move should be generated
+     * @param listener receives progress of the search, can be null
+     * @return the chosen move or null if the search was cancelled before finding any
+     */
+    private Move findMove(Position position, SearchListener listener) {
+        this.listener = listener;
+
+        bookMove = false;
+        final int code = findBookMove(position);
+        if (code != TranspositionTable.NO_MOVE) {
+            this.listener = null;
+            return new Move(position.getBoard(), code);
         }
-        return bestNode;
+
+        RootMove bestChild = finishPondering(position);
+        if (bestChild == null && !cancelled) {
+            aborted = false;
+            deadline = System.nanoTime() + timeBudget * 1000000;
+            bestChild = searchPosition(position);
+        }
+
+        this.listener = null;
+
+        return bestChild != null ? new Move(position.getBoard(), bestChild.getMove(), bestChild.getMoveIndex()) : null;
     }
 
     /**
-     * Algorithmic generation of the best move tree and assigning scores to nodes
+     * Look up the move in the opening book. When it's found, the state of the previous search is
+     * discarded like after a search, since there's no variation to continue.
      *
-     * @param node root of the game tree
-     * @param depth number of moves predicted
-     * @param alpha algorithm based limiting factor
-     * @param beta algorithm based  limiting factor
-     * @param maximizingPlayer algorithm based bool
-     * @return value of tree branch, for use in the algorithm
-     */
-    private int alphaBeta(Node node, int depth, int alpha, int beta, boolean maximizingPlayer) {
-        if (depth == 0) {
-                int value = node.getValue(aiNum, adversaryNum);
-                node.setScore(value);
-                return value;
+     * @param position position for which move should be generated
+     * @return encoded move or {@link TranspositionTable#NO_MOVE} if the position isn't in the book
+     */
+    private int findBookMove(Position position) {
+        if (openingBook == null || !openingBook.supports(position)) return TranspositionTable.NO_MOVE;
+
+        final int code = openingBook.probe(position, aiNum);
+        if (code == TranspositionTable.NO_MOVE) return code;
+
+        // Another position can share the key, so the move has to be legal here
+        final MoveList moves = new MoveList();
+        new Grid(position).generateMoves(aiNum, moves);
+
+        boolean legal = false;
+        for (int i = 0; i < moves.size() && !legal; ++i) {
+            legal = MoveList.getCode(moves.get(i)) == code;
+        }
+        if (!legal) return TranspositionTable.NO_MOVE;
+
+        stopPondering();
+        ponderHit = false;
+        previousMove = null;
+        predictedPosition = null;
+        searchTreeReused = false;
+        completedDepth = 0;
+        statistics.reset();
+        bookMove = true;
+
+        return code;
+    }
+
+    /**
+     * Start searching the position after the most likely reply of the opponent in the background,
+     * while the opponent is thinking. The reply is taken from the principal variation of the previous search,
+     * so pondering is only possible right after {@link AiPlayer#executeMove(Grid)}, once its move
+     * has been made. When the opponent makes the predicted reply, the next call to
+     * {@link AiPlayer#executeMove(Grid)} returns the move found so far, continuing the search
+     * only if pondering has taken less than the time budget. Otherwise pondering is stopped and the search starts
+     * from scratch.
+     *
+     * Pondering runs on a single thread, regardless of {@link AiPlayer#setThreadCount(int)}, and with
+     * a time budget it gives up after a few of them.
+     *
+     * Must not be called while {@link AiPlayer#executeMove(Grid)} is running.
+     *
+     * @param grid current state of grid, with the opponent to move. It's not modified
+     * @return {@code true} if pondering has started, {@code false} if there's no reply to ponder on
+     */
+    public boolean startPondering(Grid grid) {
+        synchronized (ponderLock) {
+            stopPondering();
+
+            if (previousMove == null || predictedPosition == null) return false;
+            if (previousMove.getHash() != grid.getHash()) return false;
+
+            final Position ponderPosition = predictedPosition;
+            if (new Grid(ponderPosition).isGameOver() != null) return false;
+
+            ponderHash = ponderPosition.getHash();
+            ponderStart = System.nanoTime();
+            ponderPreviousMove = previousMove;
+            ponderPredictedPosition = predictedPosition;
+            ponderResult = null;
+
+            // Search on a single thread until the opponent moves, or a few time budgets have passed.
+            // Budgets too long to be counted in nanoseconds don't limit pondering
+            cancelled = false;
+            aborted = false;
+            pondering = true;
+            final long ponderTime = PONDER_TIME_BUDGETS * 1000000L;
+            deadline = timeBudget > 0 && timeBudget < Long.MAX_VALUE / ponderTime
+                    ? ponderStart + timeBudget * ponderTime : Long.MAX_VALUE;
+
+            ponderThread = new Thread(() -> ponderResult = searchPosition(ponderPosition), "AiPlayer ponder");
+            ponderThread.setDaemon(true);
+            ponderThread.start();
+
+            return true;
+        }
+    }
+
+    /**
+     * Stop pondering started with {@link AiPlayer#startPondering(Grid)} and discard its result.
+     * Returns once the background search has finished, which happens within a few hundred nodes.
+     * It can be called from any thread, even while a search started with
+     * {@link AiPlayer#startSearch(Grid, SearchListener)} is taking over the result of pondering -
+     * then it waits until the search has the result and leaves pondering stopped.
+     */
+    public void stopPondering() {
+        synchronized (ponderLock) {
+            if (ponderThread == null) return;
+
+            abortPondering();
+        }
+    }
+
+    public boolean isPondering() {
+        return ponderThread != null;
+    }
+
+    Thread getPonderThread() {
+        return ponderThread;
+    }
+
+    /**
+     * Stop the search running in the background, if any, as well as pondering, and release
+     * threads of the parallel search. Returns once the background search has finished, which
+     * happens within a few hundred nodes. The player can still be used afterwards, threads are
+     * started again by the next search.
+     */
+    public void shutdown() {
+        cancelSearch();
+        stopPondering();
+
+        // A listener may shut the player down from the search thread, which can't wait for itself
+        final Thread thread = searchThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            joinThread(thread);
+            searchThread = null;
+        }
+
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Tell if the last move was taken from the opening book, without any search.
+     *
+     * @return {@code true} if the last move was found in the book
+     */
+    public boolean isBookMove() {
+        return bookMove;
+    }
+
+    /**
+     * Tell if the last move was found by pondering, because the opponent made the predicted reply.
+     *
+     * @return {@code true} if the last move was found by pondering
+     */
+    public boolean isPonderHit() {
+        return ponderHit;
+    }
+
+    /**
+     * Get the result of pondering if {@code position} is the pondered one. Otherwise pondering is stopped.
+     *
+     * @param position position to be searched
+     * @return best move found by pondering or null if pondering didn't find the move
+     */
+    private RootMove finishPondering(Position position) {
+        ponderHit = false;
+
+        synchronized (ponderLock) {
+            if (ponderThread == null) return null;
+
+            if (position.getHash() != ponderHash) {
+                abortPondering();
+                return null;
+            }
+
+            // The budget counts from the start of pondering, if it's already used up the search stops right away.
+            // What's left of it is searched with all threads
+            if (timeBudget > 0) {
+                deadline = ponderStart + timeBudget * 1000000;
+            }
+            pondering = false;
+            joinThread(ponderThread);
+            ponderThread = null;
+
+            ponderHit = ponderResult != null;
+            return ponderResult;
+        }
+    }
+
+    /**
+     * Abort pondering and discard its result. Has to be called while holding {@link AiPlayer#ponderLock}.
+     */
+    private void abortPondering() {
+        aborted = true;
+        joinThread(ponderThread);
+        ponderThread = null;
+        pondering = false;
+
+        // Searches of the actual position can reuse the variation from before pondering
+        previousMove = ponderPreviousMove;
+        predictedPosition = ponderPredictedPosition;
+        ponderResult = null;
+    }
+
+    /**
+     * Wait for {@code thread} to finish. The interrupt status of the calling thread is kept,
+     * but it doesn't stop the waiting.
+     */
+    private static void joinThread(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Play {@code move} and the reply it's expected to be followed by on a copy of {@code position},
+     * along the capture paths that have been searched.
+     *
+     * @param position position the move is made in
+     * @param move best move of the root, with a non-empty variation
+     * @return position after the reply
+     */
+    private Position playMoves(Position position, RootMove move) {
+        final Grid grid = new Grid(position);
+        final MoveList moves = new MoveList();
+        final MoveUndo undo = new MoveUndo();
+
+        grid.generateMoves(aiNum, moves);
+        grid.makeMove(moves, move.getMoveIndex(), undo);
+        grid.generateMoves(adversaryNum, moves);
+        grid.makeMove(moves, move.getReplyIndex(), undo);
+
+        return grid.toPosition();
+    }
+
+    /**
+     * Search the given position. The deadline and the abort flag have to be set by the caller.
+     *
+     * @param position position to be searched
+     * @return best move of the root or null if the search was aborted before completing
+     * the first iteration
+     */
+    private RootMove searchPosition(Position position) {
+        prepareWorkers();
+        for (SearchWorker worker : workers) {
+            // Lazy SMP helpers search up to one ply deeper
+            worker.newSearch(position, lvl + 1);
+        }
+        if (transpositionTable != null) {
+            transpositionTable.newSearch();
+        }
+
+        final int[] reusedScores = findReusedScores(position);
+        final int reusedDepth = reusedScores != null ? previousMove.getReplyMoveDepth() : 0;
+        searchTreeReused = false;
+        previousMove = null;
+        predictedPosition = null;
+
+        abortAllowed = false;
+        completedDepth = 0;
+        bestMoveSoFar = null;
+
+        // All moves of a position in the tablebase lead to positions in it, so they get exact scores right away
+        final int maxDepth = endgameTablebase != null && endgameTablebase.contains(position) ? 1 : lvl;
+
+        RootMove bestMove;
+        if (timeBudget <= 0) {
+            bestMove = search(maxDepth);
+            if (bestMove != null) onIterationCompleted(position, bestMove);
         } else {
+            bestMove = null;
+            int firstDepth = 1;
 
-            final HashMap<GridEntry, ArrayList<Destination>> possibleMoves;
-            if (node.isAiPlayer()) {
-                possibleMoves = node.getGrid().getMovableEntries(aiNum);
-            } else {
-                possibleMoves = node.getGrid().getMovableEntries(adversaryNum);
+            if (reusedScores != null && reusedDepth > 0 && reusedDepth < maxDepth) {
+                // The previous search has already completed iterations up to the depth it searched the position to
+                searchTreeReused = true;
+                bestMove = seedRootMoves(reusedScores);
+                completedDepth = reusedDepth;
+                onIterationCompleted(position, bestMove);
+                firstDepth = reusedDepth + 1;
             }
 
-            for (GridEntry src : possibleMoves.keySet()) {
-                for (Destination dst : possibleMoves.get(src)) {
-                    Node newNode = new Node(src, dst,
-                            Grid.simulateMove(node.getGrid(), src, dst),
-                            !node.isAiPlayer(), node.getDepth() - 1
-                    );
+            for (int depth = firstDepth; depth <= maxDepth; ++depth) {
+                // Only the first iteration has to complete, so there's always a move to return
+                abortAllowed = bestMove != null;
+                workers[0].setRootFirstMove(bestMove != null ? bestMove.getMove() : TranspositionTable.NO_MOVE);
 
-                    node.addChild(newNode);
-                }
+                final RootMove move = bestMove != null ? search(depth, rootScore) : search(depth);
+                if (isAborted()) break;
+
+                bestMove = move;
+                if (bestMove == null) break;
+
+                onIterationCompleted(position, bestMove);
+                if (System.nanoTime() >= deadline) break;
             }
+        }
 
-            if (maximizingPlayer) {
-                int value = Integer.MIN_VALUE + 1;
-                for (Node child : node.getChildren()) {
-                    value = Math.max(value, alphaBeta(child, depth - 1, alpha, beta, false));
-                    alpha = Math.max(alpha, value);
-                    if (alpha >= beta) {
-                        break;
-                    }
-                }
-                node.setScore(value);
-                return value;
+        // Keep the variation of the move for the next search
+        previousMove = bestMove;
+        if (bestMove != null && bestMove.getVariation().length > 0) {
+            predictedPosition = playMoves(position, bestMove);
+        }
+        rootMoves = null;
+
+        statistics.reset();
+        for (SearchWorker worker : workers) {
+            statistics.add(worker.getStatistics());
+            worker.endSearch();
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Remember the best move of the completed iteration and report it to the listener.
+     *
+     * @param position searched position
+     * @param bestMove best move of the root
+     */
+    private void onIterationCompleted(Position position, RootMove bestMove) {
+        bestMoveSoFar = new Move(position.getBoard(), bestMove.getMove(), bestMove.getMoveIndex());
+
+        final SearchListener currentListener = listener;
+        if (currentListener == null) return;
+
+        long nodes = 0;
+        for (SearchWorker worker : workers) {
+            nodes += worker.getStatistics().getNodes();
+        }
+
+        currentListener.onProgress(new SearchProgress(completedDepth, nodes, bestMove.getScore(),
+                getPrincipalVariation(position.getBoard(), bestMove)));
+    }
+
+    /**
+     * Get {@code bestMove} followed by its variation, see {@link RootMove#getVariation()}.
+     *
+     * @param board board of the searched position
+     * @param bestMove best move of the root
+     * @return moves of the principal variation
+     */
+    private static List<Move> getPrincipalVariation(BitBoard board, RootMove bestMove) {
+        final List<Move> moves = new ArrayList<>();
+
+        moves.add(new Move(board, bestMove.getMove()));
+        for (int move : bestMove.getVariation()) {
+            moves.add(new Move(board, move));
+        }
+
+        return moves;
+    }
+
+    /**
+     * Find scores the previous search gave to moves of {@code position}, if it's the position
+     * after the reply it predicted, see {@link RootMove#getReplyMoveScores()}.
+     *
+     * @param position position to be searched
+     * @return scores of moves or null if the opponent made another reply
+     */
+    private int[] findReusedScores(Position position) {
+        if (!searchTreeReuseEnabled || predictedPosition == null) return null;
+        if (!predictedPosition.equals(position)) return null;
+
+        return previousMove.getReplyMoveScores();
+    }
+
+    /**
+     * Give moves of the root the scores kept from the previous search, instead of searching them
+     * again to the same depth. The best move gets the exact score, so it's the same as the result
+     * of a completed iteration.
+     *
+     * @param scores scores of moves, see {@link RootMove#getReplyMoveScores()}
+     * @return best move of the root
+     */
+    private RootMove seedRootMoves(int[] scores) {
+        rootMoves = workers[0].expandRoot();
+        for (RootMove move : rootMoves) {
+            move.setScore(scores[move.getMoveIndex()]);
+        }
+
+        final RootMove bestMove = findBestMove();
+        rootScore = bestMove.getScore();
+        return bestMove;
+    }
+
+    /**
+     * Search the position given to {@link AiPlayer#executeMove(Grid)} to given {@code depth}.
+     *
+     * @param depth number of moves predicted
+     * @return best move of the root or null if the search was aborted
+     */
+    private RootMove search(int depth) {
+        final RootMove bestMove = searchWindow(depth, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1);
+        if (!isAborted()) completedDepth = depth;
+
+        return bestMove;
+    }
+
+    /**
+     * Search the position to given {@code depth} with an aspiration window around {@code guess}.
+     * When the score of the root falls outside of the window, the search is repeated with
+     * the failed bound removed, until the score is exact.
+     *
+     * @param depth number of moves predicted
+     * @param guess expected score of the root, usually the one of the previous iteration
+     * @return best move of the root or null if the search was aborted
+     */
+    private RootMove search(int depth, int guess) {
+        if (aspirationWindow == 0) return search(depth);
+
+        int alpha = Math.max(guess - aspirationWindow, Integer.MIN_VALUE + 1);
+        int beta = Math.min(guess + aspirationWindow, Integer.MAX_VALUE - 1);
+        while (true) {
+            final RootMove bestMove = searchWindow(depth, alpha, beta);
+            if (bestMove == null) return null;
+
+            if (rootScore <= alpha && alpha != Integer.MIN_VALUE + 1) {
+                alpha = Integer.MIN_VALUE + 1;
+            } else if (rootScore >= beta && beta != Integer.MAX_VALUE - 1) {
+                beta = Integer.MAX_VALUE - 1;
             } else {
-                int value = Integer.MAX_VALUE - 1;
-                for (Node child : node.getChildren()) {
-                    value = Math.min(value, alphaBeta(child, depth - 1, alpha, beta, true));
-                    beta = Math.min(beta, value);
-                    if (alpha >= beta) {
-                        break;
-                    }
+                completedDepth = depth;
+                return bestMove;
+            }
+
+            workers[0].getStatistics().onResearch();
+        }
+    }
+
+    /**
+     * Search the position given to {@link AiPlayer#executeMove(Grid)} to given {@code depth},
+     * with given window at the root. The depth isn't marked as completed, because the score may
+     * be outside of the window.
+     *
+     * @param depth number of moves predicted
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @return best move of the root or null if the search was aborted
+     */
+    private RootMove searchWindow(int depth, int alpha, int beta) {
+        rootMoves = workers[0].expandRoot();
+
+        // Pondering uses a single thread, so it doesn't keep all cores busy while the opponent thinks
+        if (workers.length == 1 || pondering) {
+            rootScore = workers[0].search(rootMoves, depth, alpha, beta);
+        } else if (parallelMode == ParallelMode.LAZY_SMP) {
+            searchLazySmp(depth, alpha, beta);
+        } else {
+            searchParallel(depth, alpha, beta);
+        }
+
+        if (isAborted()) return null;
+
+        return findBestMove();
+    }
+
+    /**
+     * Search {@link AiPlayer#rootMoves} with all workers. The first move is searched alone with
+     * the full window (young brothers wait), then the remaining moves are taken one by one by
+     * workers running in {@link AiPlayer#pool}. Each move is searched with alpha just below the best
+     * score found so far, like in the serial search - the score of a move is then either exact or
+     * lower than the best, so {@link AiPlayer#findBestMove()} picks the same move as the serial search.
+     *
+     * @param depth number of moves predicted
+     * @param alpha algorithm based limiting factor of the root
+     * @param beta algorithm based limiting factor of the root
+     */
+    private void searchParallel(int depth, int alpha, int beta) {
+        final List<RootMove> moves = rootMoves;
+        if (moves.isEmpty()) return;
+
+        for (int i = 1; i < workers.length; ++i) {
+            workers[i].copyRootMoves(workers[0]);
+        }
+
+        final int firstScore = workers[0].searchRootMove(moves.get(0), depth, alpha, beta);
+        if (isAborted()) return;
+
+        final AtomicInteger bestScore = new AtomicInteger(firstScore);
+        final AtomicInteger nextMove = new AtomicInteger(1);
+
+        final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length];
+        for (int i = 0; i < workers.length; ++i) {
+            final SearchWorker worker = workers[i];
+            tasks[i] = pool.submit(() -> {
+                int index;
+                while (!isAborted() && (index = nextMove.getAndIncrement()) < moves.size()) {
+                    // Same bound as in SearchWorker#search, which can't go below the lowest score
+                    final int score = worker.searchRootMove(moves.get(index), depth,
+                            Math.max(Math.max(bestScore.get(), alpha) - 1, Integer.MIN_VALUE + 1), beta);
+                    bestScore.accumulateAndGet(score, Math::max);
                 }
-                node.setScore(value);
-                return value;
+            });
+        }
+
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        rootScore = bestScore.get();
+    }
+
+    /**
+     * Search {@link AiPlayer#rootMoves} with the first worker on the calling thread, while the rest
+     * of workers search the root on their own in {@link AiPlayer#pool}, every other one a ply deeper,
+     * so they don't all search the same positions at the same time. Helpers share their results with
+     * the first worker only through the transposition table, their own root moves are discarded.
+     *
+     * @param depth number of moves predicted
+     * @param alpha algorithm based limiting factor of the root, used by the first worker only
+     * @param beta algorithm based limiting factor of the root, used by the first worker only
+     */
+    private void searchLazySmp(int depth, int alpha, int beta) {
+        final ForkJoinTask<?>[] helpers = new ForkJoinTask<?>[workers.length - 1];
+        for (int i = 1; i < workers.length; ++i) {
+            final SearchWorker helper = workers[i];
+            final int helperDepth = depth + (i & 1);
+
+            helper.clearStop();
+            helpers[i - 1] = pool.submit(() -> {
+                helper.search(helper.expandRoot(), helperDepth, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1);
+            });
+        }
+
+        rootScore = workers[0].search(rootMoves, depth, alpha, beta);
+
+        for (int i = 1; i < workers.length; ++i) {
+            workers[i].stop();
+        }
+        // A helper that hasn't started yet returns right away, even if it's run by join() on this thread
+        for (ForkJoinTask<?> helper : helpers) {
+            helper.join();
+        }
+    }
+
+    /**
+     * Utility function used to find the best move of the root. Of moves with equal scores,
+     * the one with the lowest encoded move is chosen, so the result doesn't depend on the order
+     * in which moves were searched.
+     *
+     * @return move with highest score or null if there are no moves
+     */
+    private RootMove findBestMove() {
+        RootMove bestMove = null;
+        for (RootMove move : rootMoves) {
+            if (bestMove == null || move.getScore() > bestMove.getScore()
+                    || (move.getScore() == bestMove.getScore() && move.getMove() < bestMove.getMove())) {
+                bestMove = move;
             }
         }
+        return bestMove;
     }
 
     public GridEntry getAiMoveSource() {
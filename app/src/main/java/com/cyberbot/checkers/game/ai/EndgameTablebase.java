@@ -0,0 +1,415 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.BitBoard;
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+import com.cyberbot.checkers.game.logic.Position;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Results of all positions with kings only, up to a given number of pieces, computed by
+ * {@link EndgameTablebaseGenerator}. Such endgames can't be told apart by {@link Grid#getValue(PlayerNum, PlayerNum)},
+ * so without the tablebase the search shuffles kings until the game ends with
+ * {@link com.cyberbot.checkers.game.logic.GameEndReason#DRAW_TOO_MANY_KING_ONLY_MOVES}.
+ *
+ * Every position is stored in a single byte - whether the side to move wins, loses or draws, and
+ * the number of king moves without captures (of both sides) the winner needs to capture a piece
+ * or block the opponent, with the other side delaying it as long as it can. The position is won
+ * only if the winner gets there before {@link Grid#KING_ONLY_MOVE_LIMIT} is reached, so
+ * {@link EndgameTablebase#probe(Grid, PlayerNum)} takes the king-only move counter into account.
+ *
+ * Kings move the same way for both players, so only positions where {@link PlayerNum#FIRST} has
+ * at least as many kings as {@link PlayerNum#SECOND} are stored and the rest are looked up with
+ * the players swapped. Positions of a class (numbers of kings of each side) are indexed by ranks
+ * of sets of squares of each side in the combinatorial number system, so the index is computed
+ * without any lookup tables but binomial coefficients.
+ *
+ * The file starts with a header of {@link EndgameTablebase#HEADER_SIZE} bytes - magic number,
+ * format version, board size, rules and the number of pieces, followed by classes in the order of
+ * increasing number of pieces. It's memory-mapped by {@link EndgameTablebase#load(File)}, so only
+ * the parts the search looks at are read, and it can be shared by all search threads.
+ */
+public final class EndgameTablebase {
+    /**
+     * Score of a won position, reduced by the number of moves needed to win. It's far above any
+     * value of {@link Grid#getValue(PlayerNum, PlayerNum)}.
+     */
+    public static final int WIN_SCORE = 100000;
+
+    /**
+     * Returned by {@link EndgameTablebase#probe(Grid, PlayerNum)} for positions that aren't in
+     * the tablebase.
+     */
+    static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final int DRAW = 0;
+    static final int WIN = 1;
+    static final int LOSS = 2;
+
+    /**
+     * Maximum number of king-only moves stored. A position that needs more is a draw, since
+     * the move reaching {@link Grid#KING_ONLY_MOVE_LIMIT} ends the game.
+     */
+    static final int MAX_DISTANCE = Grid.KING_ONLY_MOVE_LIMIT - 1;
+
+    static final int MIN_PIECES = 3;
+    static final int HEADER_SIZE = 20;
+
+    private static final int MAGIC = 0x434b5442;
+    private static final int VERSION = 1;
+    private static final int RULE_FLYING_KING = 1;
+    private static final int RULE_MANDATORY_CAPTURE = 2;
+    private static final int RESULT_SHIFT = 6;
+    private static final int DISTANCE_MASK = (1 << RESULT_SHIFT) - 1;
+
+    private final int size;
+    private final int squareCount;
+    private final boolean flyingKing;
+    private final boolean mandatoryCapture;
+    private final int maxPieces;
+    private final int[][] binomials;
+    private final int[] offsets;
+    private final int length;
+    private final ByteBuffer data;
+
+    private EndgameTablebase(int size, boolean flyingKing, boolean mandatoryCapture, int maxPieces, ByteBuffer data) {
+        if (maxPieces < MIN_PIECES) {
+            throw new IllegalArgumentException("Tablebase needs at least " + MIN_PIECES + " pieces");
+        }
+
+        this.size = size;
+        this.squareCount = BitBoard.getSquareCount(size);
+        if (maxPieces > squareCount) {
+            throw new IllegalArgumentException("Board of size " + size + " can't hold " + maxPieces + " pieces");
+        }
+        this.flyingKing = flyingKing;
+        this.mandatoryCapture = mandatoryCapture;
+        this.maxPieces = maxPieces;
+
+        // Computed as longs, so a tablebase too big to be indexed with ints is rejected instead of overflowing
+        final long[][] coefficients = new long[squareCount + 1][maxPieces];
+        for (int n = 0; n <= squareCount; ++n) {
+            coefficients[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, maxPieces - 1); ++k) {
+                coefficients[n][k] = coefficients[n - 1][k - 1] + (k < n ? coefficients[n - 1][k] : 0);
+            }
+        }
+
+        offsets = new int[(maxPieces + 1) * (maxPieces + 1)];
+        long offset = 0;
+        for (int pieces = MIN_PIECES; pieces <= maxPieces; ++pieces) {
+            for (int weak = 1; weak <= pieces / 2; ++weak) {
+                offsets[getClass(pieces - weak, weak)] = (int) offset;
+                offset += coefficients[squareCount][pieces - weak] * coefficients[squareCount][weak] * 2;
+                if (offset > Integer.MAX_VALUE - HEADER_SIZE) {
+                    throw new IllegalArgumentException("Tablebase of " + maxPieces + " pieces is too big for board of size " + size);
+                }
+            }
+        }
+        length = (int) offset;
+
+        binomials = new int[squareCount + 1][maxPieces];
+        for (int n = 0; n <= squareCount; ++n) {
+            for (int k = 0; k < maxPieces; ++k) {
+                binomials[n][k] = (int) coefficients[n][k];
+            }
+        }
+
+        if (data == null) {
+            data = ByteBuffer.allocate(length);
+        } else if (data.capacity() < length) {
+            throw new IllegalArgumentException("Tablebase data is truncated");
+        }
+        this.data = data;
+    }
+
+    /**
+     * Create an empty tablebase to be filled by {@link EndgameTablebaseGenerator}. Every position
+     * is a draw until set otherwise.
+     */
+    static EndgameTablebase allocate(int size, boolean flyingKing, boolean mandatoryCapture, int maxPieces) {
+        return new EndgameTablebase(size, flyingKing, mandatoryCapture, maxPieces, null);
+    }
+
+    /**
+     * Map a tablebase file saved with {@link EndgameTablebase#save(File)} into memory.
+     *
+     * @param file File with the tablebase
+     * @return Loaded tablebase
+     * @throws IOException When the file can't be read or isn't a tablebase
+     */
+    @NotNull
+    public static EndgameTablebase load(@NotNull File file) throws IOException {
+        try (RandomAccessFile stream = new RandomAccessFile(file, "r"); FileChannel channel = stream.getChannel()) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " isn't an endgame tablebase");
+            }
+
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("File " + file + " isn't an endgame tablebase");
+            }
+
+            final int size = buffer.getInt();
+            final int rules = buffer.getInt();
+            final int maxPieces = buffer.getInt();
+            try {
+                return new EndgameTablebase(size, (rules & RULE_FLYING_KING) != 0,
+                        (rules & RULE_MANDATORY_CAPTURE) != 0, maxPieces, buffer.slice());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("File " + file + " is corrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Save the tablebase to a file, which can be loaded with {@link EndgameTablebase#load(File)}.
+     *
+     * @param file Destination file, overwritten if it exists
+     * @throws IOException When the file can't be written
+     */
+    public void save(@NotNull File file) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file); FileChannel channel = stream.getChannel()) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size)
+                    .putInt((flyingKing ? RULE_FLYING_KING : 0) | (mandatoryCapture ? RULE_MANDATORY_CAPTURE : 0))
+                    .putInt(maxPieces);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            final ByteBuffer content = data.duplicate();
+            content.position(0).limit(length);
+            while (content.hasRemaining()) channel.write(content);
+        }
+    }
+
+    /**
+     * Get the usual name of the tablebase file for the rules of given position, e.g. to look it up
+     * in a directory.
+     *
+     * @param position Any position played with the rules
+     * @return Name of the file
+     */
+    @NotNull
+    public static String getFileName(@NotNull Position position) {
+        return "endgame-" + position.getSize() + (position.isFlyingKing() ? "-flying" : "")
+                + (position.isMandatoryCapture() ? "-mandatory" : "") + ".tb";
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Tell if the tablebase has been generated for the board and the rules of given position.
+     * Other rules don't matter, since they only apply to {@link com.cyberbot.checkers.game.logic.PieceType#ORDINARY} pieces.
+     *
+     * @param position Position to be checked
+     * @return {@code true} if the tablebase can be probed in positions of the game
+     */
+    public boolean supports(@NotNull Position position) {
+        return position.getSize() == size && position.isFlyingKing() == flyingKing
+                && position.isMandatoryCapture() == mandatoryCapture;
+    }
+
+    /**
+     * Tell if the position is in the tablebase - it has only kings and no more than
+     * {@link EndgameTablebase#getMaxPieces()} of them.
+     *
+     * @param position Position to be checked
+     * @return {@code true} if {@link EndgameTablebase#probe(Grid, PlayerNum)} knows the result
+     */
+    public boolean contains(@NotNull Position position) {
+        final BitBoard board = position.getBoard();
+        final int kings = board.countKings(PlayerNum.FIRST) + board.countKings(PlayerNum.SECOND);
+        return supports(position) && kings <= maxPieces
+                && board.countPieces(PlayerNum.FIRST) + board.countPieces(PlayerNum.SECOND) == kings;
+    }
+
+    /**
+     * Get the score of the position on {@code grid} for {@code player}, taking the king-only move
+     * counter of the grid into account. The grid must be played with the rules
+     * the tablebase {@link EndgameTablebase#supports(Position)}.
+     *
+     * @param grid Position to be looked up
+     * @param player Side to move
+     * @return {@link EndgameTablebase#WIN_SCORE} reduced by the number of moves to win, its negation
+     * for a lost position, 0 for a draw or {@link EndgameTablebase#NOT_FOUND} if the position isn't
+     * in the tablebase
+     */
+    int probe(Grid grid, PlayerNum player) {
+        if (grid.getOrdinaryCount(PlayerNum.FIRST) + grid.getOrdinaryCount(PlayerNum.SECOND) != 0) return NOT_FOUND;
+
+        final PlayerNum opponent = player == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        final int kings = grid.getKingCount(player);
+        final int opponentKings = grid.getKingCount(opponent);
+        if (kings + opponentKings > maxPieces) return NOT_FOUND;
+
+        if (kings == 0) return -WIN_SCORE;
+        if (opponentKings == 0) return WIN_SCORE;
+        // King against king is a draw, see GameEndReason#DRAW_KING_VS_KING
+        if (kings == 1 && opponentKings == 1) return 0;
+
+        return getScore(getEntry(grid.getBoard(), player), grid.getMoveCount());
+    }
+
+    /**
+     * Get the stored entry of a position in the tablebase.
+     *
+     * @param board Position with only kings, at least {@link EndgameTablebase#MIN_PIECES} and no more than
+     *              {@link EndgameTablebase#getMaxPieces()} of them, each side having at least one
+     * @param player Side to move
+     * @return The entry, see {@link EndgameTablebase#getResult(int)} and {@link EndgameTablebase#getDistance(int)}
+     */
+    private int getEntry(BitBoard board, PlayerNum player) {
+        final int firstKings = board.countKings(PlayerNum.FIRST);
+        final int secondKings = board.countKings(PlayerNum.SECOND);
+
+        // The side with more kings is stored as the first player
+        final PlayerNum white = firstKings >= secondKings ? PlayerNum.FIRST : PlayerNum.SECOND;
+        final PlayerNum black = white == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        final int weak = Math.min(firstKings, secondKings);
+
+        final int index = (rank(board, white) * binomials[squareCount][weak] + rank(board, black)) * 2
+                + (player == white ? 0 : 1);
+        return getEntry(getOffset(Math.max(firstKings, secondKings), weak), index);
+    }
+
+    private int rank(BitBoard board, PlayerNum player) {
+        int rank = 0;
+        int k = 0;
+        for (int s = board.nextPiece(player, 0); s != -1; s = board.nextPiece(player, s + 1)) {
+            rank += binomials[s][++k];
+        }
+
+        return rank;
+    }
+
+    /**
+     * Get the rank of a set of squares in the combinatorial number system.
+     *
+     * @param squares Squares in ascending order
+     * @return Index of the set among all sets of the same size
+     */
+    int rank(int[] squares) {
+        int rank = 0;
+        for (int k = 0; k < squares.length; ++k) {
+            rank += binomials[squares[k]][k + 1];
+        }
+
+        return rank;
+    }
+
+    /**
+     * Get the set of squares with given rank, see {@link EndgameTablebase#rank(int[])}.
+     *
+     * @param rank Index of the set
+     * @param squares Filled with squares of the set in ascending order
+     */
+    void unrank(int rank, int[] squares) {
+        int square = squareCount;
+        for (int k = squares.length; k > 0; --k) {
+            do {
+                --square;
+            } while (binomials[square][k] > rank);
+
+            squares[k - 1] = square;
+            rank -= binomials[square][k];
+        }
+    }
+
+    int getBinomial(int n, int k) {
+        return binomials[n][k];
+    }
+
+    int getSquareCount() {
+        return squareCount;
+    }
+
+    boolean isFlyingKing() {
+        return flyingKing;
+    }
+
+    boolean isMandatoryCapture() {
+        return mandatoryCapture;
+    }
+
+    /**
+     * Get the number of positions of a class, counting both sides to move.
+     *
+     * @param strong Number of kings of the first player
+     * @param weak Number of kings of the second player, not more than {@code strong}
+     */
+    int getClassLength(int strong, int weak) {
+        return binomials[squareCount][strong] * binomials[squareCount][weak] * 2;
+    }
+
+    /**
+     * Get the offset of a class in the data. Positions of the class are indexed with
+     * {@code (whiteRank * C(squares, weak) + blackRank) * 2 + side}, where side is 0 when the first
+     * player is to move.
+     *
+     * @param strong Number of kings of the first player
+     * @param weak Number of kings of the second player, not more than {@code strong}
+     */
+    int getOffset(int strong, int weak) {
+        return offsets[getClass(strong, weak)];
+    }
+
+    private int getClass(int strong, int weak) {
+        return strong * (maxPieces + 1) + weak;
+    }
+
+    int getEntry(int offset, int index) {
+        return data.get(offset + index) & 0xff;
+    }
+
+    void setEntry(int offset, int index, int result, int distance) {
+        data.put(offset + index, (byte) toEntry(result, distance));
+    }
+
+    static int toEntry(int result, int distance) {
+        return result << RESULT_SHIFT | distance;
+    }
+
+    static int getResult(int entry) {
+        return entry >>> RESULT_SHIFT;
+    }
+
+    static int getDistance(int entry) {
+        return entry & DISTANCE_MASK;
+    }
+
+    /**
+     * Get the score of an entry for the side to move.
+     *
+     * @param entry Stored entry
+     * @param moveCount King-only moves made so far, see {@link Grid#getMoveCount()}
+     * @return Score like the one of {@link EndgameTablebase#probe(Grid, PlayerNum)}
+     */
+    static int getScore(int entry, int moveCount) {
+        final int distance = getDistance(entry);
+        if (moveCount + distance > MAX_DISTANCE) return 0;
+
+        switch (getResult(entry)) {
+            case WIN:
+                return WIN_SCORE - distance;
+            case LOSS:
+                return -WIN_SCORE + distance;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.BoardGeometry;
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PieceType;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Computes {@link EndgameTablebase} by retrograde analysis. It's meant to be run offline, e.g.
+ * with {@link EndgameTablebaseGenerator#main(String[])}, since bigger tablebases take a while.
+ *
+ * Classes of positions are solved in the order of increasing number of pieces, so a capture always
+ * leads to a position that is already known. Within a class, moves of all positions are generated
+ * once by {@link Grid#generateMoves(PlayerNum, MoveList)}, which resolves positions decided by
+ * a capture or where the game is over, and counts the remaining moves of the others. From then on
+ * the analysis goes backwards - moves leading to resolved positions are unmade, one king move at
+ * a time, and the positions they come from are resolved in the order of increasing distance:
+ * a position is won as soon as one of its moves leads to a lost one, and lost once all of them lead
+ * to won ones. Positions that aren't resolved within {@link EndgameTablebase#MAX_DISTANCE} moves
+ * are draws.
+ */
+public class EndgameTablebaseGenerator {
+    private final EndgameTablebase tablebase;
+    private final BoardGeometry geometry;
+    private final Grid grid;
+    private final MoveList moves = new MoveList();
+    private final MoveUndo undo = new MoveUndo();
+    private final boolean[] occupied;
+
+    // State of the class being solved
+    private int offset;
+    private int blackCount;
+    private int[] whiteSquares;
+    private int[] blackSquares;
+    private int[] sortedWhiteSquares;
+    private int[] sortedBlackSquares;
+    private int[] counters;
+    private Level current = new Level();
+    private Level next = new Level();
+
+    /**
+     * Constructs {@link EndgameTablebaseGenerator} for given board and rules. Rules of
+     * {@link PieceType#ORDINARY} pieces don't matter.
+     *
+     * @param size Size of the board
+     * @param flyingKing Allow king to move by multiple steps
+     * @param mandatoryCapture Force captures
+     * @param maxPieces Maximum number of kings of both sides, at least 3
+     */
+    public EndgameTablebaseGenerator(int size, boolean flyingKing, boolean mandatoryCapture, int maxPieces) {
+        tablebase = EndgameTablebase.allocate(size, flyingKing, mandatoryCapture, maxPieces);
+        geometry = BoardGeometry.forSize(size);
+        grid = new Grid(size, 0, false, true, flyingKing, mandatoryCapture);
+        occupied = new boolean[tablebase.getSquareCount()];
+    }
+
+    /**
+     * Solve all classes of positions.
+     *
+     * @return The complete tablebase
+     */
+    @NotNull
+    public EndgameTablebase generate() {
+        for (int pieces = EndgameTablebase.MIN_PIECES; pieces <= tablebase.getMaxPieces(); ++pieces) {
+            for (int weak = 1; weak <= pieces / 2; ++weak) {
+                solve(pieces - weak, weak);
+            }
+        }
+
+        return tablebase;
+    }
+
+    /**
+     * Solve positions where the first player has {@code strong} kings and the second one
+     * {@code weak} kings.
+     */
+    private void solve(int strong, int weak) {
+        offset = tablebase.getOffset(strong, weak);
+        blackCount = tablebase.getBinomial(tablebase.getSquareCount(), weak);
+        whiteSquares = new int[strong];
+        blackSquares = new int[weak];
+        sortedWhiteSquares = new int[strong];
+        sortedBlackSquares = new int[weak];
+        counters = new int[tablebase.getClassLength(strong, weak)];
+        current.clear();
+
+        final int whiteCount = tablebase.getBinomial(tablebase.getSquareCount(), strong);
+        for (int white = 0; white < whiteCount; ++white) {
+            tablebase.unrank(white, whiteSquares);
+            for (int black = 0; black < blackCount; ++black) {
+                tablebase.unrank(black, blackSquares);
+                if (overlap()) continue;
+
+                placePieces(PlayerNum.FIRST, PlayerNum.SECOND);
+                initialize((white * blackCount + black) * 2);
+                placePieces(PlayerNum.NOPLAYER, PlayerNum.NOPLAYER);
+            }
+        }
+
+        for (int distance = 1; distance <= EndgameTablebase.MAX_DISTANCE && current.size > 0; ++distance) {
+            next.clear();
+            for (int i = 0; i < current.size; ++i) {
+                retract(current.items[i], distance);
+            }
+
+            final Level resolved = current;
+            current = next;
+            next = resolved;
+        }
+
+        counters = null;
+    }
+
+    private boolean overlap() {
+        for (int white : whiteSquares) {
+            for (int black : blackSquares) {
+                if (white == black) return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Put kings of the current position on the grid or clear their squares.
+     *
+     * @param white Owner of kings of the first player, {@link PlayerNum#NOPLAYER} to clear them
+     * @param black Owner of kings of the second player, {@link PlayerNum#NOPLAYER} to clear them
+     */
+    private void placePieces(PlayerNum white, PlayerNum black) {
+        final PieceType whiteType = white == PlayerNum.NOPLAYER ? PieceType.UNASSIGNED : PieceType.KING;
+        final PieceType blackType = black == PlayerNum.NOPLAYER ? PieceType.UNASSIGNED : PieceType.KING;
+
+        for (int square : whiteSquares) grid.setPiece(square, white, whiteType);
+        for (int square : blackSquares) grid.setPiece(square, black, blackType);
+    }
+
+    /**
+     * Resolve the position set up on the grid for both sides to move, as far as possible
+     * without knowing results of other positions of the class.
+     *
+     * @param index Index of the position with the first player to move
+     */
+    private void initialize(int index) {
+        final boolean whiteCanMove = grid.hasAnyLegalMove(PlayerNum.FIRST);
+        final boolean blackCanMove = grid.hasAnyLegalMove(PlayerNum.SECOND);
+
+        // The game is over, whoever is to move, see Grid#isGameOver()
+        if (!whiteCanMove || !blackCanMove) {
+            if (whiteCanMove) {
+                resolve(index, EndgameTablebase.WIN, 0, current);
+                resolve(index + 1, EndgameTablebase.LOSS, 0, current);
+            } else if (blackCanMove) {
+                resolve(index, EndgameTablebase.LOSS, 0, current);
+                resolve(index + 1, EndgameTablebase.WIN, 0, current);
+            }
+            return;
+        }
+
+        initialize(index, PlayerNum.FIRST, PlayerNum.SECOND);
+        initialize(index + 1, PlayerNum.SECOND, PlayerNum.FIRST);
+    }
+
+    private void initialize(int index, PlayerNum player, PlayerNum opponent) {
+        grid.generateMoves(player, moves);
+
+        int quietMoves = 0;
+        boolean winning = false;
+        boolean drawing = false;
+        for (int i = 0; i < moves.size(); ++i) {
+            if (MoveList.getCaptureCount(moves.get(i)) == 0) {
+                ++quietMoves;
+                continue;
+            }
+
+            // Captures lead to smaller classes, which are already solved
+            grid.makeMove(moves, i, undo);
+            final int score = tablebase.probe(grid, opponent);
+            grid.unmakeMove(undo);
+
+            if (score < 0) winning = true;
+            else if (score == 0) drawing = true;
+        }
+
+        if (winning) {
+            resolve(index, EndgameTablebase.WIN, 0, current);
+        } else if (quietMoves == 0 && !drawing) {
+            resolve(index, EndgameTablebase.LOSS, 0, current);
+        } else if (quietMoves > 0) {
+            // A drawing capture keeps the counter above zero, so the position can't be lost
+            counters[index] = quietMoves + (drawing ? 1 : 0);
+        }
+    }
+
+    /**
+     * Unmake every king move that could have led to the resolved position and update positions
+     * it could have been made in.
+     *
+     * @param index Index of the resolved position
+     * @param distance Distance of the resolved position increased by the unmade move
+     */
+    private void retract(int index, int distance) {
+        final boolean whiteToMove = (index & 1) == 0;
+        final int result = EndgameTablebase.getResult(tablebase.getEntry(offset, index));
+        tablebase.unrank((index >> 1) / blackCount, whiteSquares);
+        tablebase.unrank((index >> 1) % blackCount, blackSquares);
+
+        for (int square : whiteSquares) occupied[square] = true;
+        for (int square : blackSquares) occupied[square] = true;
+
+        // The king that has moved belongs to the side that isn't to move
+        final int[] movedSquares = whiteToMove ? blackSquares : whiteSquares;
+        for (int k = 0; k < movedSquares.length; ++k) {
+            final int square = movedSquares[k];
+
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+                final int end = geometry.getRayEnd(square, d);
+
+                for (int i = geometry.getRayStart(square, d); i < end; ++i) {
+                    final int from = geometry.getRaySquare(i);
+                    if (occupied[from]) break;
+
+                    movedSquares[k] = from;
+                    update(getIndex(!whiteToMove), result, distance);
+                    if (!tablebase.isFlyingKing()) break;
+                }
+            }
+
+            movedSquares[k] = square;
+        }
+
+        for (int square : whiteSquares) occupied[square] = false;
+        for (int square : blackSquares) occupied[square] = false;
+    }
+
+    /**
+     * Update the position a move to a resolved position could have been made in.
+     *
+     * @param index Index of the position the move was made in
+     * @param result Result of the resolved position for its side to move
+     * @param distance Distance of the resolved position increased by the move
+     */
+    private void update(int index, int result, int distance) {
+        if (counters[index] == 0) return;
+
+        if (result == EndgameTablebase.LOSS) {
+            resolve(index, EndgameTablebase.WIN, distance, next);
+        } else if (--counters[index] == 0) {
+            resolve(index, EndgameTablebase.LOSS, distance, next);
+        }
+    }
+
+    private void resolve(int index, int result, int distance, Level level) {
+        tablebase.setEntry(offset, index, result, distance);
+        counters[index] = 0;
+        level.add(index);
+    }
+
+    private int getIndex(boolean whiteToMove) {
+        return (rank(whiteSquares, sortedWhiteSquares) * blackCount + rank(blackSquares, sortedBlackSquares)) * 2
+                + (whiteToMove ? 0 : 1);
+    }
+
+    private int rank(int[] squares, int[] sorted) {
+        // A moved king can break the order of squares
+        System.arraycopy(squares, 0, sorted, 0, squares.length);
+        Arrays.sort(sorted);
+
+        return tablebase.rank(sorted);
+    }
+
+    /**
+     * Positions resolved at the same distance.
+     */
+    private static class Level {
+        private int[] items = new int[1024];
+        private int size;
+
+        void add(int item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Generate a tablebase and save it to a file.
+     *
+     * Arguments: board size, whether kings are flying, whether captures are mandatory, maximum
+     * number of pieces and the output file, e.g. {@code 10 true true 4 endgame-10-flying-mandatory.tb}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: EndgameTablebaseGenerator <size> <flyingKing> <mandatoryCapture> <maxPieces> <file>");
+            System.exit(1);
+        }
+
+        final EndgameTablebaseGenerator generator = new EndgameTablebaseGenerator(Integer.parseInt(args[0]),
+                Boolean.parseBoolean(args[1]), Boolean.parseBoolean(args[2]), Integer.parseInt(args[3]));
+        generator.generate().save(new File(args[4]));
+    }
+}
@@ -0,0 +1,100 @@
+package com.cyberbot.checkers.game.ai;
+
+import androidx.annotation.NonNull;
+
+import com.cyberbot.checkers.game.logic.BitBoard;
+
+/**
+ * Move found by {@link AiPlayer}, described by coordinates of its source and destination entries,
+ * so it doesn't depend on any particular {@link com.cyberbot.checkers.game.logic.Grid} instance.
+ * Capture paths between the same entries are equal moves, the searched one is told apart only
+ * by {@link Move#getMoveIndex()}.
+ */
+public final class Move {
+    private final int srcX;
+    private final int srcY;
+    private final int dstX;
+    private final int dstY;
+    private final int moveIndex;
+
+    Move(int srcX, int srcY, int dstX, int dstY) {
+        this(srcX, srcY, dstX, dstY, -1);
+    }
+
+    private Move(int srcX, int srcY, int dstX, int dstY, int moveIndex) {
+        this.srcX = srcX;
+        this.srcY = srcY;
+        this.dstX = dstX;
+        this.dstY = dstY;
+        this.moveIndex = moveIndex;
+    }
+
+    /**
+     * Constructs the move from its int encoding, see {@link AiPlayer}.
+     *
+     * @param board board the move was generated for
+     * @param move encoded move
+     */
+    Move(@NonNull BitBoard board, int move) {
+        this(board, move, -1);
+    }
+
+    /**
+     * Constructs the move from its int encoding and its index among moves of the searched position.
+     *
+     * @param board board the move was generated for
+     * @param move encoded move
+     * @param moveIndex index of the move in the {@link com.cyberbot.checkers.game.logic.MoveList} of the searched position
+     */
+    Move(@NonNull BitBoard board, int move, int moveIndex) {
+        this(board.getSquareX(move >>> 16), board.getSquareY(move >>> 16),
+                board.getSquareX(move & 0xFFFF), board.getSquareY(move & 0xFFFF), moveIndex);
+    }
+
+    public int getSrcX() {
+        return srcX;
+    }
+
+    public int getSrcY() {
+        return srcY;
+    }
+
+    public int getDstX() {
+        return dstX;
+    }
+
+    public int getDstY() {
+        return dstY;
+    }
+
+    /**
+     * Get the index of the move among moves generated for the searched position by
+     * {@link com.cyberbot.checkers.game.logic.Grid#generateMoves(com.cyberbot.checkers.game.logic.PlayerNum, com.cyberbot.checkers.game.logic.MoveList)},
+     * which tells apart capture paths between the same entries.
+     *
+     * @return index of the move or -1 if it isn't known
+     */
+    int getMoveIndex() {
+        return moveIndex;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Move)) return false;
+
+        final Move other = (Move) obj;
+        return srcX == other.srcX && srcY == other.srcY && dstX == other.dstX && dstY == other.dstY;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((srcX * 31 + srcY) * 31 + dstX) * 31 + dstY;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "(" + srcX + ", " + srcY + ") -> (" + dstX + ", " + dstY + ")";
+    }
+}
@@ -0,0 +1,147 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.MoveList;
+
+import java.util.Arrays;
+
+/**
+ * Decides in which order {@link AiPlayer} searches the moves of a position. The sooner the best
+ * move is searched, the more of the remaining moves get pruned. Moves are tried in this order:
+ *
+ * <ol>
+ *     <li>the hash move - the best move found by an earlier search of the same position,</li>
+ *     <li>captures, the ones capturing more pieces first,</li>
+ *     <li>killer moves - quiet moves that caused a cutoff in a sibling node at the same ply,</li>
+ *     <li>the rest of quiet moves, ranked by the history table, which counts how often
+ *     a move caused a cutoff anywhere in the tree.</li>
+ * </ol>
+ */
+class MoveOrdering {
+    private static final int KILLERS_PER_PLY = 2;
+    private static final int HISTORY_SIZE = 1 << 16;
+    private static final int HISTORY_MAX = (1 << 20) - 1;
+
+    private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int CAPTURE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+
+    private int[][] killers = new int[0][];
+    private final int[] history = new int[HISTORY_SIZE];
+
+    /**
+     * Prepare for the next search. Killer moves are forgotten, since they're only meaningful
+     * for positions of one search, and the history is aged, so newer cutoffs weigh more.
+     */
+    void newSearch() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, TranspositionTable.NO_MOVE);
+        }
+
+        for (int i = 0; i < HISTORY_SIZE; ++i) {
+            history[i] >>>= 1;
+        }
+    }
+
+    private static int historyIndex(int move) {
+        // Mix source and destination squares, collisions only make the ordering slightly worse
+        return ((move >>> 16) * 31 + (move & 0xFFFF)) & (HISTORY_SIZE - 1);
+    }
+
+    private int[] getKillers(int ply) {
+        if (ply >= killers.length) {
+            final int oldLength = killers.length;
+            killers = Arrays.copyOf(killers, Math.max(ply + 1, oldLength * 2));
+            for (int i = oldLength; i < killers.length; ++i) {
+                killers[i] = new int[KILLERS_PER_PLY];
+                Arrays.fill(killers[i], TranspositionTable.NO_MOVE);
+            }
+        }
+
+        return killers[ply];
+    }
+
+    /**
+     * Find the order in which {@code moves} should be searched, the most promising first. Moves
+     * with equal scores keep the order of generation.
+     *
+     * @param moves moves of the searched position
+     * @param order receives indices of moves in {@code moves}, must fit all of them
+     * @param scores buffer for ordering scores of moves, must fit all of them
+     * @param hashMove encoded hash move or {@link TranspositionTable#NO_MOVE}
+     * @param ply distance of the searched position from the root
+     */
+    void order(MoveList moves, int[] order, int[] scores, int hashMove, int ply) {
+        final int[] plyKillers = getKillers(ply);
+
+        for (int i = 0; i < moves.size(); ++i) {
+            final int move = MoveList.getCode(moves.get(i));
+            final int captured = MoveList.getCaptureCount(moves.get(i));
+            final int score;
+
+            if (move == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (captured > 0) {
+                score = CAPTURE_SCORE + (Math.min(captured, 255) << 20) + history[historyIndex(move)];
+            } else if (move == plyKillers[0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == plyKillers[1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[historyIndex(move)];
+            }
+
+            // Insertion sort, there are rarely more than a few dozen moves
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                order[j] = order[j - 1];
+                --j;
+            }
+            scores[j] = score;
+            order[j] = i;
+        }
+    }
+
+    /**
+     * Search {@code moves} in the order of generation, except for the hash move, which goes first.
+     * Used instead of {@link MoveOrdering#order(MoveList, int[], int[], int, int)} when move ordering is disabled.
+     *
+     * @param moves moves of the searched position
+     * @param order receives indices of moves in {@code moves}, must fit all of them
+     * @param hashMove encoded hash move or {@link TranspositionTable#NO_MOVE}
+     */
+    static void orderHashMoveFirst(MoveList moves, int[] order, int hashMove) {
+        // Capture paths between the same squares share the code, only the first of them is the hash move
+        int hashIndex = -1;
+        for (int i = 0; i < moves.size() && hashIndex == -1; ++i) {
+            if (MoveList.getCode(moves.get(i)) == hashMove) hashIndex = i;
+        }
+
+        int next = 0;
+        if (hashIndex != -1) order[next++] = hashIndex;
+        for (int i = 0; i < moves.size(); ++i) {
+            if (i != hashIndex) order[next++] = i;
+        }
+    }
+
+    /**
+     * Remember the move that caused a beta cutoff.
+     *
+     * @param move move that caused the cutoff, as stored in {@link MoveList}
+     * @param depth remaining depth of the position where the cutoff happened
+     * @param ply distance of the position where the cutoff happened from the root
+     */
+    void onCutoff(long move, int depth, int ply) {
+        final int code = MoveList.getCode(move);
+        final int index = historyIndex(code);
+        history[index] = Math.min(HISTORY_MAX, history[index] + depth * depth);
+
+        if (MoveList.getCaptureCount(move) > 0) return;
+
+        final int[] plyKillers = getKillers(ply);
+        if (plyKillers[0] != code) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = code;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.PlayerNum;
+import com.cyberbot.checkers.game.logic.Position;
+import com.cyberbot.checkers.game.logic.Zobrist;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Moves to be played in positions close to the start of the game, computed in advance by
+ * {@link OpeningBookGenerator}, so {@link AiPlayer} doesn't have to search them.
+ *
+ * Positions are identified by the same key as in {@link TranspositionTable} - the Zobrist hash of
+ * the placement of pieces combined with {@link Zobrist#SIDE_KEY} when {@link PlayerNum#SECOND} is
+ * to move. Entries of {@link OpeningBook#ENTRY_SIZE} bytes - the key followed by the encoded move
+ * (see {@link AiPlayer}) - are sorted by the key, so a position is found with a binary search.
+ *
+ * The file starts with a header of {@link OpeningBook#HEADER_SIZE} bytes - magic number, format
+ * version, board size, rules and the number of entries. It's memory-mapped by
+ * {@link OpeningBook#load(File)}, so it can be shared by all search threads without being read
+ * into memory as a whole.
+ */
+public final class OpeningBook {
+    static final int HEADER_SIZE = 20;
+    static final int ENTRY_SIZE = 12;
+
+    private static final int MAGIC = 0x434b4f42;
+    private static final int VERSION = 1;
+    private static final int RULE_MOVE_BACKWARDS = 1;
+    private static final int RULE_CAPTURE_BACKWARDS = 2;
+    private static final int RULE_FLYING_KING = 4;
+    private static final int RULE_MANDATORY_CAPTURE = 8;
+
+    private final int size;
+    private final int rules;
+    private final int count;
+    private final ByteBuffer entries;
+
+    private OpeningBook(int size, int rules, int count, ByteBuffer entries) {
+        if (count < 0 || (long) count * ENTRY_SIZE > entries.capacity()) {
+            throw new IllegalArgumentException("Opening book entries are truncated");
+        }
+
+        this.size = size;
+        this.rules = rules;
+        this.count = count;
+        this.entries = entries;
+    }
+
+    /**
+     * Create a book from entries found by {@link OpeningBookGenerator}.
+     *
+     * @param position Any position played with the rules of the book
+     * @param keys Keys of positions, sorted in ascending order without duplicates
+     * @param moves Encoded moves to be played in positions of {@code keys}
+     */
+    static OpeningBook create(Position position, long[] keys, int[] moves) {
+        final ByteBuffer entries = ByteBuffer.allocate(keys.length * ENTRY_SIZE);
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0 && keys[i - 1] >= keys[i]) {
+                throw new IllegalArgumentException("Keys of opening book have to be sorted");
+            }
+
+            entries.putLong(keys[i]).putInt(moves[i]);
+        }
+
+        return new OpeningBook(position.getSize(), getRules(position), keys.length, entries);
+    }
+
+    /**
+     * Map an opening book file saved with {@link OpeningBook#save(File)} into memory.
+     *
+     * @param file File with the book
+     * @return Loaded book
+     * @throws IOException When the file can't be read or isn't an opening book
+     */
+    @NotNull
+    public static OpeningBook load(@NotNull File file) throws IOException {
+        try (RandomAccessFile stream = new RandomAccessFile(file, "r"); FileChannel channel = stream.getChannel()) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " isn't an opening book");
+            }
+
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("File " + file + " isn't an opening book");
+            }
+
+            final int size = buffer.getInt();
+            final int rules = buffer.getInt();
+            final int count = buffer.getInt();
+            try {
+                return new OpeningBook(size, rules, count, buffer.slice());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("File " + file + " is corrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Save the book to a file, which can be loaded with {@link OpeningBook#load(File)}.
+     *
+     * @param file Destination file, overwritten if it exists
+     * @throws IOException When the file can't be written
+     */
+    public void save(@NotNull File file) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file); FileChannel channel = stream.getChannel()) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(rules).putInt(count);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            final ByteBuffer content = entries.duplicate();
+            content.position(0).limit(count * ENTRY_SIZE);
+            while (content.hasRemaining()) channel.write(content);
+        }
+    }
+
+    /**
+     * Get the usual name of the opening book file for the rules of given position, e.g. to look it up
+     * in a directory. Books don't depend on the number of player rows, so one file can hold openings
+     * of all of them.
+     *
+     * @param position Any position played with the rules
+     * @return Name of the file
+     */
+    @NotNull
+    public static String getFileName(@NotNull Position position) {
+        return "opening-" + position.getSize() + (position.canMoveBackwards() ? "-backwards" : "")
+                + (position.canCaptureBackwards() ? "-capture-backwards" : "")
+                + (position.isFlyingKing() ? "-flying" : "") + (position.isMandatoryCapture() ? "-mandatory" : "")
+                + ".book";
+    }
+
+    private static int getRules(Position position) {
+        return (position.canMoveBackwards() ? RULE_MOVE_BACKWARDS : 0)
+                | (position.canCaptureBackwards() ? RULE_CAPTURE_BACKWARDS : 0)
+                | (position.isFlyingKing() ? RULE_FLYING_KING : 0)
+                | (position.isMandatoryCapture() ? RULE_MANDATORY_CAPTURE : 0);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of positions in the book.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Tell if the book has been generated for the board and the rules of given position.
+     *
+     * @param position Position to be checked
+     * @return {@code true} if the book can be probed in positions of the game
+     */
+    public boolean supports(@NotNull Position position) {
+        return position.getSize() == size && getRules(position) == rules;
+    }
+
+    /**
+     * Find the move to be played in given position. The position has to be played with the rules
+     * the book {@link OpeningBook#supports(Position)}. Different positions can share the key, so
+     * the move should be checked to be legal before it's played.
+     *
+     * @param position Position to be looked up
+     * @param player Side to move
+     * @return Encoded move or {@link TranspositionTable#NO_MOVE} if the position isn't in the book
+     */
+    int probe(Position position, PlayerNum player) {
+        final long key = position.getHash() ^ (player == PlayerNum.SECOND ? Zobrist.SIDE_KEY : 0);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long middleKey = entries.getLong(middle * ENTRY_SIZE);
+
+            if (middleKey < key) low = middle + 1;
+            else if (middleKey > key) high = middle - 1;
+            else return entries.getInt(middle * ENTRY_SIZE + 8);
+        }
+
+        return TranspositionTable.NO_MOVE;
+    }
+}
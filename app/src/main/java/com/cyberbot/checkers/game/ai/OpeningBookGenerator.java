@@ -0,0 +1,182 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.GridEntry;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+import com.cyberbot.checkers.game.logic.Position;
+import com.cyberbot.checkers.game.logic.Zobrist;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Builds {@link OpeningBook} by searching positions close to the start of the game with a much
+ * deeper search than the one the game can afford. It's meant to be run offline, e.g. with
+ * {@link OpeningBookGenerator#main(String[])}.
+ *
+ * Openings are explored breadth-first from the starting position, with either player moving
+ * first. Every position up to the given number of plies gets the move chosen by {@link AiPlayer}
+ * searching to the fixed depth, and all its moves are followed, so the book covers whatever
+ * the opponent plays. Positions reached in more than one way are searched only once.
+ */
+public class OpeningBookGenerator {
+    private final int size;
+    private final boolean canMoveBackwards;
+    private final boolean canCaptureBackwards;
+    private final boolean flyingKing;
+    private final boolean mandatoryCapture;
+    private final int plies;
+    private final AiPlayer[] players;
+    private final HashMap<Long, Integer> moves = new HashMap<>();
+    private Position rulesPosition;
+
+    /**
+     * Constructs {@link OpeningBookGenerator} for given board and rules.
+     *
+     * @param size Size of the board
+     * @param canMoveBackwards Allow ordinary pieces to move backwards
+     * @param canCaptureBackwards Allow ordinary pieces to capture backwards
+     * @param flyingKing Allow king to move by multiple steps
+     * @param mandatoryCapture Force captures
+     * @param depth Depth of the search of every position in plies
+     * @param plies Number of plies from the start of the game covered by the book
+     */
+    public OpeningBookGenerator(int size, boolean canMoveBackwards, boolean canCaptureBackwards,
+                                boolean flyingKing, boolean mandatoryCapture, int depth, int plies) {
+        this.size = size;
+        this.canMoveBackwards = canMoveBackwards;
+        this.canCaptureBackwards = canCaptureBackwards;
+        this.flyingKing = flyingKing;
+        this.mandatoryCapture = mandatoryCapture;
+        this.plies = plies;
+
+        players = new AiPlayer[]{
+                new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth),
+                new AiPlayer(PlayerNum.SECOND, PlayerNum.FIRST, depth)
+        };
+    }
+
+    /**
+     * Search openings of the game starting with given number of player rows.
+     *
+     * @param playerRows Number of player rows, see {@link Grid#Grid(int, int)}
+     */
+    public void addOpenings(int playerRows) {
+        final Position start = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards,
+                flyingKing, mandatoryCapture).toPosition();
+        rulesPosition = start;
+
+        final ArrayDeque<Opening> queue = new ArrayDeque<>();
+        queue.add(new Opening(start, PlayerNum.FIRST, 0));
+        queue.add(new Opening(start, PlayerNum.SECOND, 0));
+
+        final MoveList children = new MoveList();
+        final MoveUndo undo = new MoveUndo();
+        while (!queue.isEmpty()) {
+            final Opening opening = queue.poll();
+            final long key = opening.position.getHash() ^ (opening.player == PlayerNum.SECOND ? Zobrist.SIDE_KEY : 0);
+            if (moves.containsKey(key)) continue;
+
+            final Grid grid = new Grid(opening.position);
+            if (grid.isGameOver() != null) continue;
+
+            moves.put(key, search(grid, opening.player));
+            if (opening.ply + 1 >= plies) continue;
+
+            final PlayerNum opponent = opening.player == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+            grid.generateMoves(opening.player, children);
+            for (int i = 0; i < children.size(); ++i) {
+                grid.makeMove(children, i, undo);
+                queue.add(new Opening(grid.toPosition(), opponent, opening.ply + 1));
+                grid.unmakeMove(undo);
+            }
+        }
+    }
+
+    /**
+     * Find the move of {@code player} in the position on {@code grid}.
+     *
+     * @return Encoded move, see {@link AiPlayer}
+     */
+    private int search(Grid grid, PlayerNum player) {
+        final AiPlayer ai = players[player == PlayerNum.FIRST ? 0 : 1];
+        ai.executeMove(grid);
+
+        final GridEntry source = ai.getAiMoveSource();
+        final GridEntry destination = ai.getAiMoveDestination().getDestinationEntry();
+        return grid.getBoard().getSquare(source.getX(), source.getY()) << 16
+                | grid.getBoard().getSquare(destination.getX(), destination.getY());
+    }
+
+    /**
+     * Build the book of all openings added so far.
+     *
+     * @return The book, sorted by keys of positions
+     */
+    @NotNull
+    public OpeningBook build() {
+        if (rulesPosition == null) {
+            throw new IllegalStateException("No openings have been added");
+        }
+
+        final long[] keys = new long[moves.size()];
+        int count = 0;
+        for (long key : moves.keySet()) {
+            keys[count++] = key;
+        }
+        Arrays.sort(keys);
+
+        final int[] sortedMoves = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            sortedMoves[i] = moves.get(keys[i]);
+        }
+
+        return OpeningBook.create(rulesPosition, keys, sortedMoves);
+    }
+
+    /**
+     * Position to be searched, with the side to move and its distance from the start.
+     */
+    private static class Opening {
+        final Position position;
+        final PlayerNum player;
+        final int ply;
+
+        Opening(Position position, PlayerNum player, int ply) {
+            this.position = position;
+            this.player = player;
+            this.ply = ply;
+        }
+    }
+
+    /**
+     * Generate an opening book and save it to a file.
+     *
+     * Arguments: board size, whether ordinary pieces can move backwards, whether they can capture
+     * backwards, whether kings are flying, whether captures are mandatory, search depth, number of
+     * plies, the output file and numbers of player rows, e.g.
+     * {@code 10 false true true true 10 4 opening-10-capture-backwards-flying-mandatory.book 3 4}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 9) {
+            System.err.println("Usage: OpeningBookGenerator <size> <canMoveBackwards> <canCaptureBackwards>"
+                    + " <flyingKing> <mandatoryCapture> <depth> <plies> <file> <playerRows>...");
+            System.exit(1);
+        }
+
+        final OpeningBookGenerator generator = new OpeningBookGenerator(Integer.parseInt(args[0]),
+                Boolean.parseBoolean(args[1]), Boolean.parseBoolean(args[2]), Boolean.parseBoolean(args[3]),
+                Boolean.parseBoolean(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]));
+        for (int i = 8; i < args.length; ++i) {
+            generator.addOpenings(Integer.parseInt(args[i]));
+        }
+        generator.build().save(new File(args[7]));
+    }
+}
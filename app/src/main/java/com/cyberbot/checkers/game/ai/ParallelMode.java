@@ -0,0 +1,17 @@
+package com.cyberbot.checkers.game.ai;
+
+/**
+ * Ways {@link AiPlayer} can use multiple threads, see {@link AiPlayer#setParallelMode(ParallelMode)}.
+ */
+public enum ParallelMode {
+    /**
+     * Moves of the root are split between threads. Chooses the same move as the serial search.
+     */
+    ROOT_SPLIT,
+
+    /**
+     * All threads search the whole tree from the root, helper threads at staggered depths, and
+     * share results only through the transposition table (Lazy SMP).
+     */
+    LAZY_SMP
+}
@@ -0,0 +1,109 @@
+package com.cyberbot.checkers.game.ai;
+
+/**
+ * Move of the root position searched by {@link AiPlayer}. The search keeps no tree below the root -
+ * everything a {@link SearchWorker} needs deeper is kept in its per-ply arrays - so a root move
+ * only remembers its score and the line the search expects to follow it.
+ */
+class RootMove {
+    private final int move;
+    private final int moveIndex;
+    private int score = Integer.MIN_VALUE + 1;
+    private long hash;
+    private int[] variation = new int[0];
+    private int replyIndex = -1;
+    private int[] replyMoveScores;
+    private int replyMoveDepth;
+
+    RootMove(int move, int moveIndex) {
+        this.move = move;
+        this.moveIndex = moveIndex;
+    }
+
+    int getScore() {
+        return score;
+    }
+
+    void setScore(int score) {
+        this.score = score;
+    }
+
+    /**
+     * Get the move encoded as an int, see {@link AiPlayer} for the format.
+     */
+    int getMove() {
+        return move;
+    }
+
+    /**
+     * Get the index of the move in the {@link com.cyberbot.checkers.game.logic.MoveList} of the root.
+     */
+    int getMoveIndex() {
+        return moveIndex;
+    }
+
+    /**
+     * Get the hash of the position after the move, see {@link com.cyberbot.checkers.game.logic.Grid#getHash()}.
+     */
+    long getHash() {
+        return hash;
+    }
+
+    void setHash(long hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Get the principal variation following the move - the best reply of the opponent, the best
+     * answer to it and so on. The line ends where the search did, which may be before the search
+     * depth when positions were resolved by the transposition table.
+     *
+     * @return encoded moves, empty if the move hasn't been searched
+     */
+    int[] getVariation() {
+        return variation;
+    }
+
+    void setVariation(int[] variation) {
+        this.variation = variation;
+    }
+
+    /**
+     * Get the index of the first move of the variation in the {@link com.cyberbot.checkers.game.logic.MoveList}
+     * of the position after the move, which tells apart capture paths between the same squares.
+     *
+     * @return index of the reply or -1 if the variation is empty
+     */
+    int getReplyIndex() {
+        return replyIndex;
+    }
+
+    void setReplyIndex(int replyIndex) {
+        this.replyIndex = replyIndex;
+    }
+
+    /**
+     * Get scores the search gave to moves of the position after the first move of the variation,
+     * indexed like moves of its {@link com.cyberbot.checkers.game.logic.MoveList}. Only the best
+     * move has the exact score, the rest have upper bounds below it, and moves that were pruned
+     * or not searched have the lowest score.
+     *
+     * @return scores of moves or null if the position after the reply hasn't been searched
+     */
+    int[] getReplyMoveScores() {
+        return replyMoveScores;
+    }
+
+    /**
+     * Get the depth the position after the first move of the variation has been searched to,
+     * see {@link RootMove#getReplyMoveScores()}.
+     */
+    int getReplyMoveDepth() {
+        return replyMoveDepth;
+    }
+
+    void setReplyMoveScores(int[] replyMoveScores, int depth) {
+        this.replyMoveScores = replyMoveScores;
+        replyMoveDepth = depth;
+    }
+}
@@ -0,0 +1,67 @@
+package com.cyberbot.checkers.game.ai;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of a search running in the background, returned by
+ * {@link AiPlayer#startSearch(com.cyberbot.checkers.game.logic.Grid, SearchListener)}. The result
+ * of the search is the chosen {@link Move}, or null if there's no legal move.
+ *
+ * Cancelling the search is cooperative - the search thread notices it within a few hundred nodes
+ * and finishes without reporting the result. {@link SearchHandle#cancel(boolean)} never interrupts
+ * the thread, regardless of its argument.
+ */
+public class SearchHandle extends FutureTask<Move> {
+    private final AiPlayer player;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    SearchHandle(AiPlayer player, Callable<Move> search) {
+        super(search);
+        this.player = player;
+    }
+
+    @Override
+    public void run() {
+        try {
+            super.run();
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(false);
+        if (cancelled) player.cancelSearch();
+
+        return cancelled;
+    }
+
+    /**
+     * Get the best move of the last completed iteration.
+     *
+     * @return the move or null if the first iteration hasn't completed yet
+     */
+    @Nullable
+    public Move getBestMoveSoFar() {
+        return player.getBestMoveSoFar();
+    }
+
+    /**
+     * Wait until the search thread has finished. Unlike {@link SearchHandle#get()}, it also waits
+     * for a cancelled search to actually stop.
+     *
+     * @param timeout maximum time to wait
+     * @param unit unit of {@code timeout}
+     * @return {@code true} if the thread has finished, {@code false} if the time has run out
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+}
@@ -0,0 +1,27 @@
+package com.cyberbot.checkers.game.ai;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Receives events of a search started with {@link AiPlayer#startSearch(com.cyberbot.checkers.game.logic.Grid, SearchListener)}.
+ * Methods are called on the search thread.
+ */
+public interface SearchListener {
+    /**
+     * Called after each completed iteration of the search.
+     *
+     * @param progress state of the search
+     */
+    default void onProgress(@NonNull SearchProgress progress) {
+    }
+
+    /**
+     * Called once the search has finished, unless it was cancelled. The move can also be read with
+     * {@link AiPlayer#getAiMoveSource()} and {@link AiPlayer#getAiMoveDestination()}.
+     *
+     * @param move the chosen move or null if there's no legal move
+     */
+    default void onFinished(@Nullable Move move) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.cyberbot.checkers.game.ai;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of a running search reported to {@link SearchListener#onProgress(SearchProgress)} after
+ * each completed iteration.
+ */
+public final class SearchProgress {
+    private final int depth;
+    private final long nodes;
+    private final int score;
+    private final List<Move> principalVariation;
+
+    SearchProgress(int depth, long nodes, int score, @NonNull List<Move> principalVariation) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.score = score;
+        this.principalVariation = Collections.unmodifiableList(principalVariation);
+    }
+
+    /**
+     * Get the depth of the completed iteration.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of nodes visited since the start of the search, summed up over all threads.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the score of the best move from the perspective of the AI.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the sequence of moves both players are expected to make, starting with the best move of the AI.
+     */
+    @NonNull
+    public List<Move> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "depth: " + depth + ", nodes: " + nodes + ", score: " + score + ", pv: " + principalVariation;
+    }
+}
@@ -0,0 +1,171 @@
+package com.cyberbot.checkers.game.ai;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Counters collected by {@link AiPlayer} during a single search. They're meant for tuning
+ * the search - e.g. the rate of cutoffs caused by the first searched move tells how good
+ * the move ordering is.
+ */
+public class SearchStatistics {
+    private long nodes;
+    private long quiescenceNodes;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long transpositionHits;
+    private long researches;
+    private long reducedMoves;
+    private long prunedMoves;
+    private long tablebaseHits;
+
+    /**
+     * Get the number of visited nodes, including leaves.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the number of nodes visited by the quiescence search, which goes on with captures
+     * after the nominal depth is reached.
+     */
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    /**
+     * Get the number of nodes where the search was cut off before all moves were searched.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Get the number of cutoffs caused by the first searched move.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Get the number of nodes resolved from the transposition table without searching.
+     */
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    /**
+     * Get the number of moves searched again with the full window, because the null window search
+     * of principal variation search or the reduced search of a late move has shown they could be better
+     * than the best move so far. Includes searches of the root repeated because its score fell outside
+     * of the aspiration window.
+     */
+    public long getResearches() {
+        return researches;
+    }
+
+    /**
+     * Get the number of late moves searched to a reduced depth.
+     */
+    public long getReducedMoves() {
+        return reducedMoves;
+    }
+
+    /**
+     * Get the number of moves skipped by futility pruning.
+     */
+    public long getPrunedMoves() {
+        return prunedMoves;
+    }
+
+    /**
+     * Get the number of nodes resolved from the {@link EndgameTablebase} without searching.
+     */
+    public long getTablebaseHits() {
+        return tablebaseHits;
+    }
+
+    /**
+     * Get the fraction of cutoffs that were caused by the first searched move. With perfect
+     * move ordering it approaches 1.
+     *
+     * @return Rate in range [0, 1] or 0 when there were no cutoffs
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    void reset() {
+        nodes = 0;
+        quiescenceNodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        transpositionHits = 0;
+        researches = 0;
+        reducedMoves = 0;
+        prunedMoves = 0;
+        tablebaseHits = 0;
+    }
+
+    /**
+     * Add counters of {@code other} to these, e.g. to sum up statistics of parallel searches.
+     *
+     * @param other statistics to be added
+     */
+    void add(SearchStatistics other) {
+        nodes += other.nodes;
+        quiescenceNodes += other.quiescenceNodes;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        transpositionHits += other.transpositionHits;
+        researches += other.researches;
+        reducedMoves += other.reducedMoves;
+        prunedMoves += other.prunedMoves;
+        tablebaseHits += other.tablebaseHits;
+    }
+
+    void onNode() {
+        ++nodes;
+    }
+
+    void onQuiescenceNode() {
+        ++quiescenceNodes;
+    }
+
+    void onCutoff(boolean firstMove) {
+        ++cutoffs;
+        if (firstMove) ++firstMoveCutoffs;
+    }
+
+    void onTranspositionHit() {
+        ++transpositionHits;
+    }
+
+    void onResearch() {
+        ++researches;
+    }
+
+    void onReducedMove() {
+        ++reducedMoves;
+    }
+
+    void onPrunedMove() {
+        ++prunedMoves;
+    }
+
+    void onTablebaseHit() {
+        ++tablebaseHits;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "nodes: " + nodes + ", quiescence nodes: " + quiescenceNodes + ", cutoffs: " + cutoffs
+                + ", first move cutoff rate: " + String.format(Locale.US, "%.3f", getFirstMoveCutoffRate())
+                + ", transposition hits: " + transpositionHits + ", re-searches: " + researches
+                + ", reduced moves: " + reducedMoves + ", pruned moves: " + prunedMoves
+                + ", tablebase hits: " + tablebaseHits;
+    }
+}
@@ -0,0 +1,629 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+import com.cyberbot.checkers.game.logic.Position;
+import com.cyberbot.checkers.game.logic.Zobrist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Alpha-beta search run by a single thread on behalf of {@link AiPlayer}. Everything the search
+ * modifies - the {@link Grid} copy, move buffers and undo records of each ply, {@link MoveOrdering}
+ * tables and {@link SearchStatistics} - is owned by the worker, so multiple workers can search the same position in parallel.
+ * Settings, the time limit and the abort flag are read from the owning {@link AiPlayer}. The only
+ * structure shared between workers is the lock-free {@link TranspositionTable}.
+ *
+ * The search is written in the negamax form - scores are always given from the point of view of
+ * the side to move, which is the AI at even plies and its opponent at odd ones. Below the root
+ * nothing is allocated: moves, their order and the principal variation of each ply are kept in
+ * arrays allocated by {@link SearchWorker#newSearch(Position, int)}, so memory use doesn't grow
+ * with the number of visited positions.
+ */
+class SearchWorker {
+    private static final int INITIAL_MOVE_CAPACITY = 32;
+
+    // Ply of positions after the replies to root moves, whose move scores are kept for the next search
+    private static final int REPLY_MOVES_PLY = 2;
+
+    // Late move reductions
+    private static final int REDUCTION_MIN_DEPTH = 3;
+    private static final int REDUCTION_FULL_DEPTH_MOVES = 3;
+    private static final int REDUCTION = 1;
+
+    // Futility pruning margins indexed by the remaining depth - a bit more than a piece at the frontier,
+    // a bit more than a king a ply above it
+    private static final int[] FUTILITY_MARGINS = {0, 40, 120};
+
+    private final AiPlayer owner;
+    private final PlayerNum aiNum;
+    private final PlayerNum adversaryNum;
+
+    private Grid searchGrid;
+    private MoveUndo[] undoStack = new MoveUndo[0];
+    private MoveList[] moveLists = new MoveList[0];
+    private int[][] moveOrders = new int[0][];
+    private int[][] orderingScores = new int[0][];
+    private int[][] principalVariations = new int[0][];
+    private int[] principalVariationLengths = new int[0];
+    private int[] bestMoveIndices = new int[0];
+    private final ArrayList<MoveUndo> quiescenceUndoStack = new ArrayList<>();
+    private final ArrayList<MoveList> quiescenceMoveLists = new ArrayList<>();
+    private TranspositionTable transpositionTable;
+    private EndgameTablebase endgameTablebase;
+    private final MoveOrdering moveOrdering = new MoveOrdering();
+    private final SearchStatistics statistics = new SearchStatistics();
+
+    private int rootFirstMove = TranspositionTable.NO_MOVE;
+
+    // Scores of moves of the last node searched at REPLY_MOVES_PLY and of the one after the best reply so far
+    private int[] replyMoveScores = new int[INITIAL_MOVE_CAPACITY];
+    private int replyMoveCount = -1;
+    private int[] bestReplyMoveScores = new int[INITIAL_MOVE_CAPACITY];
+    private int bestReplyMoveCount = -1;
+    private long nodeCount;
+    private volatile boolean stopped;
+    private int quiescenceNodes;
+
+    SearchWorker(AiPlayer owner, PlayerNum aiNum, PlayerNum adversaryNum) {
+        this.owner = owner;
+        this.aiNum = aiNum;
+        this.adversaryNum = adversaryNum;
+    }
+
+    SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Stop the search of this worker only, e.g. a helper thread of Lazy SMP search once the main
+     * thread is done. The search returns as soon as possible and its result is meaningless.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Allow the worker to search again after {@link SearchWorker#stop()}.
+     */
+    void clearStop() {
+        stopped = false;
+    }
+
+    private boolean isStopped() {
+        return stopped || owner.isAborted();
+    }
+
+    /**
+     * Prepare the worker for a new search of given position.
+     *
+     * @param position position to be searched. The worker restores its own grid from it
+     * @param maxDepth maximum depth of the search
+     */
+    void newSearch(Position position, int maxDepth) {
+        searchGrid = new Grid(position);
+        rootFirstMove = TranspositionTable.NO_MOVE;
+
+        final EndgameTablebase tablebase = owner.getEndgameTablebase();
+        endgameTablebase = tablebase != null && tablebase.supports(position) ? tablebase : null;
+
+        if (undoStack.length <= maxDepth) {
+            undoStack = new MoveUndo[maxDepth + 1];
+            moveLists = new MoveList[maxDepth + 1];
+            moveOrders = new int[maxDepth + 1][INITIAL_MOVE_CAPACITY];
+            orderingScores = new int[maxDepth + 1][INITIAL_MOVE_CAPACITY];
+            principalVariations = new int[maxDepth + 1][maxDepth + 1];
+            principalVariationLengths = new int[maxDepth + 1];
+            bestMoveIndices = new int[maxDepth + 1];
+            for (int i = 0; i <= maxDepth; ++i) {
+                undoStack[i] = new MoveUndo();
+                moveLists[i] = new MoveList();
+            }
+        }
+
+        statistics.reset();
+        moveOrdering.newSearch();
+    }
+
+    /**
+     * Release the position of the last search.
+     */
+    void endSearch() {
+        searchGrid = null;
+    }
+
+    /**
+     * Set the move to be searched first at the root, usually the best move of the previous
+     * iteration of iterative deepening.
+     *
+     * @param move encoded move or {@link TranspositionTable#NO_MOVE}
+     */
+    void setRootFirstMove(int move) {
+        rootFirstMove = move;
+    }
+
+    /**
+     * Generate and order moves of the root without searching them. The hash move goes first,
+     * or the move set by {@link SearchWorker#setRootFirstMove(int)} if the position isn't in
+     * the transposition table.
+     *
+     * @return moves of the root in the order they should be searched
+     */
+    List<RootMove> expandRoot() {
+        final MoveList moves = moveLists[0];
+        searchGrid.generateMoves(aiNum, moves);
+
+        int hashMove = TranspositionTable.NO_MOVE;
+        if (transpositionTable != null) {
+            final long entry = transpositionTable.probe(getKey(aiNum));
+            if (entry != 0) hashMove = TranspositionTable.getMove(entry);
+        }
+        if (hashMove == TranspositionTable.NO_MOVE) {
+            hashMove = rootFirstMove;
+        }
+
+        orderMoves(0, hashMove);
+
+        final int[] order = moveOrders[0];
+        final List<RootMove> rootMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); ++i) {
+            rootMoves.add(new RootMove(MoveList.getCode(moves.get(order[i])), order[i]));
+        }
+
+        return rootMoves;
+    }
+
+    /**
+     * Take moves of the root from {@code other} worker, which has generated them with
+     * {@link SearchWorker#expandRoot()}, so they can be searched by this worker.
+     *
+     * @param other worker that has expanded the root
+     */
+    void copyRootMoves(SearchWorker other) {
+        moveLists[0].copyFrom(other.moveLists[0]);
+    }
+
+    /**
+     * Search all {@code rootMoves} with given window, e.g. an aspiration window around the score
+     * of the previous iteration. Scores of the root and its moves are reliable only when
+     * the returned value falls inside of the window.
+     *
+     * @param rootMoves moves generated by {@link SearchWorker#expandRoot()}, their scores and variations are set by the search
+     * @param depth number of moves predicted
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @return value of the root
+     */
+    int search(List<RootMove> rootMoves, int depth, int alpha, int beta) {
+        if (shouldAbort()) {
+            return 0;
+        }
+
+        statistics.onNode();
+
+        final int alphaOrig = alpha;
+        RootMove bestMove = null;
+        int value = Integer.MIN_VALUE + 1;
+        for (int i = 0; i < rootMoves.size(); ++i) {
+            final RootMove rootMove = rootMoves.get(i);
+            // Moves equal to the best one have to get exact scores too, see AiPlayer#findBestMove.
+            // Integer.MIN_VALUE can't be negated, so a lost position keeps the lowest bound
+            final int moveAlpha = bestMove != null ? Math.max(alpha - 1, Integer.MIN_VALUE + 1) : alpha;
+
+            final int moveValue = searchRootMove(rootMove, depth, moveAlpha, beta,
+                    bestMove != null && owner.isPrincipalVariationSearchEnabled());
+            if (isStopped()) return value;
+
+            if (bestMove == null || moveValue > value) {
+                value = moveValue;
+                bestMove = rootMove;
+            }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                onCutoff(moveLists[0].get(rootMove.getMoveIndex()), i, depth, 0);
+                break;
+            }
+        }
+
+        if (transpositionTable != null) {
+            transpositionTable.store(getKey(aiNum), depth, getBound(value, alphaOrig, beta), value,
+                    bestMove != null ? bestMove.getMove() : TranspositionTable.NO_MOVE);
+        }
+
+        return value;
+    }
+
+    /**
+     * Search a single move of the root with given window. Used to split the root between workers.
+     *
+     * @param rootMove move generated by {@link SearchWorker#expandRoot()}, its score and variation are set by the search
+     * @param depth depth of the whole search
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @return value of the move
+     */
+    int searchRootMove(RootMove rootMove, int depth, int alpha, int beta) {
+        return searchRootMove(rootMove, depth, alpha, beta, false);
+    }
+
+    private int searchRootMove(RootMove rootMove, int depth, int alpha, int beta, boolean nullWindow) {
+        final MoveUndo undo = undoStack[0];
+        searchGrid.makeMove(moveLists[0], rootMove.getMoveIndex(), undo);
+        rootMove.setHash(searchGrid.getHash());
+        final int value = searchMove(depth, 0, alpha, beta, nullWindow);
+        searchGrid.unmakeMove(undo);
+
+        if (!isStopped()) {
+            rootMove.setScore(value);
+            rootMove.setVariation(Arrays.copyOfRange(principalVariations[1], 1, principalVariationLengths[1]));
+            rootMove.setReplyIndex(principalVariationLengths[1] > 1 ? bestMoveIndices[1] : -1);
+            rootMove.setReplyMoveScores(principalVariationLengths[1] > 1 && bestReplyMoveCount != -1
+                    ? Arrays.copyOf(bestReplyMoveScores, bestReplyMoveCount) : null, depth - REPLY_MOVES_PLY);
+        }
+
+        return value;
+    }
+
+    /**
+     * Tell if the search should be stopped. The clock is checked only every 1024 nodes.
+     *
+     * @return {@code true} if the search has been aborted
+     */
+    private boolean shouldAbort() {
+        if (isStopped()) return true;
+
+        if ((++nodeCount & 1023) == 0) {
+            owner.checkDeadline();
+        }
+
+        return isStopped();
+    }
+
+    private PlayerNum getPlayer(int ply) {
+        return (ply & 1) == 0 ? aiNum : adversaryNum;
+    }
+
+    private long getKey(PlayerNum player) {
+        return searchGrid.getHash() ^ (player == PlayerNum.SECOND ? Zobrist.SIDE_KEY : 0);
+    }
+
+    private static int getBound(int value, int alpha, int beta) {
+        return value <= alpha ? TranspositionTable.BOUND_UPPER
+                : value >= beta ? TranspositionTable.BOUND_LOWER
+                : TranspositionTable.BOUND_EXACT;
+    }
+
+    /**
+     * Fill {@link SearchWorker#moveOrders} of given {@code ply} with indices of moves generated
+     * into its {@link MoveList}, in the order they should be searched.
+     *
+     * @param ply distance of the searched position from the root
+     * @param hashMove encoded hash move or {@link TranspositionTable#NO_MOVE}
+     */
+    private void orderMoves(int ply, int hashMove) {
+        final MoveList moves = moveLists[ply];
+        if (moveOrders[ply].length < moves.size()) {
+            moveOrders[ply] = new int[Math.max(moves.size(), moveOrders[ply].length * 2)];
+            orderingScores[ply] = new int[moveOrders[ply].length];
+        }
+
+        if (owner.isMoveOrderingEnabled()) {
+            moveOrdering.order(moves, moveOrders[ply], orderingScores[ply], hashMove, ply);
+        } else {
+            MoveOrdering.orderHashMoveFirst(moves, moveOrders[ply], hashMove);
+        }
+    }
+
+    /**
+     * Search the move made on {@link SearchWorker#searchGrid} at given {@code ply}. With
+     * {@code nullWindow} set, the move is expected to be worse than the best one so far, which is
+     * checked with a cheaper null window search, and it's searched again with the full window
+     * only if it turns out better.
+     *
+     * @param depth remaining depth of the position the move was made in
+     * @param ply distance of the position the move was made in from the root
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @param nullWindow whether to use principal variation search
+     * @return value of the move for the side that made it
+     */
+    private int searchMove(int depth, int ply, int alpha, int beta, boolean nullWindow) {
+        if (!nullWindow) {
+            return -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+        }
+
+        int value = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha);
+        if (value > alpha && value < beta && !isStopped()) {
+            statistics.onResearch();
+            value = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+        }
+
+        return value;
+    }
+
+    /**
+     * Algorithmic generation of the best move and assigning scores to positions. Unless disabled
+     * with {@link AiPlayer#setPrincipalVariationSearchEnabled(boolean)}, only the first move is
+     * searched with the full window, see {@link SearchWorker#searchMove(int, int, int, int, boolean)}.
+     * The best move found so far and the line following it are kept in
+     * {@link SearchWorker#principalVariations} of the ply.
+     *
+     * Quiet moves - ones that neither capture nor promote - can be searched selectively. Late in
+     * the order they're searched to a reduced depth first, and close to the leaves they're skipped
+     * when the static value of the position is too far below alpha for them to matter, unless they
+     * leave the opponent without moves.
+     *
+     * Positions found in the {@link EndgameTablebase} aren't searched at all, their exact score
+     * is returned at any depth.
+     *
+     * @param depth number of moves predicted
+     * @param ply distance of the position from the root, which decides the side to move
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @return value of the position for the side to move
+     */
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        principalVariationLengths[ply] = ply;
+        if (ply == REPLY_MOVES_PLY - 1) bestReplyMoveCount = -1;
+        if (ply == REPLY_MOVES_PLY) replyMoveCount = -1;
+
+        if (shouldAbort()) {
+            return 0;
+        }
+
+        statistics.onNode();
+
+        final PlayerNum player = getPlayer(ply);
+        final PlayerNum opponent = getPlayer(ply + 1);
+
+        if (endgameTablebase != null) {
+            final int score = endgameTablebase.probe(searchGrid, player);
+            if (score != EndgameTablebase.NOT_FOUND) {
+                statistics.onTablebaseHit();
+                return score;
+            }
+        }
+
+        if (depth == 0) {
+            if (owner.getQuiescenceNodeLimit() > 0) {
+                quiescenceNodes = 0;
+                return quiesce(alpha, beta, player, opponent, 0);
+            }
+
+            return searchGrid.getValue(player, opponent);
+        }
+
+        final long key = getKey(player);
+        final int alphaOrig = alpha;
+        final int betaOrig = beta;
+
+        int hashMove = TranspositionTable.NO_MOVE;
+        final long entry = transpositionTable != null ? transpositionTable.probe(key) : 0;
+        if (entry != 0) {
+            hashMove = TranspositionTable.getMove(entry);
+
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                final int score = TranspositionTable.getScore(entry);
+                final int bound = TranspositionTable.getBound(entry);
+
+                if (bound == TranspositionTable.BOUND_EXACT) {
+                    statistics.onTranspositionHit();
+                    return score;
+                }
+
+                if (bound == TranspositionTable.BOUND_LOWER) alpha = Math.max(alpha, score);
+                else beta = Math.min(beta, score);
+
+                if (alpha >= beta) {
+                    statistics.onTranspositionHit();
+                    return score;
+                }
+            }
+        }
+
+        final MoveList moves = moveLists[ply];
+        searchGrid.generateMoves(player, moves);
+        orderMoves(ply, hashMove);
+
+        final int[] order = moveOrders[ply];
+        final MoveUndo undo = undoStack[ply];
+        int value = Integer.MIN_VALUE + 1;
+
+        boolean futile = false;
+        int futilityValue = 0;
+        if (owner.isFutilityPruningEnabled() && depth < FUTILITY_MARGINS.length) {
+            futilityValue = searchGrid.getValue(player, opponent) + FUTILITY_MARGINS[depth];
+            futile = futilityValue <= alpha;
+        }
+        final boolean reductionAllowed = owner.isLateMoveReductionsEnabled() && depth >= REDUCTION_MIN_DEPTH;
+        if (ply == REPLY_MOVES_PLY) clearReplyMoveScores(moves.size());
+
+        for (int i = 0; i < moves.size(); ++i) {
+            searchGrid.makeMove(moves, order[i], undo);
+            final boolean quiet = MoveList.getCaptureCount(moves.get(order[i])) == 0 && !undo.isPromotion();
+
+            // The first move is always searched, so the value isn't only an estimate
+            if (futile && quiet && i > 0 && searchGrid.hasAnyLegalMove(opponent)) {
+                searchGrid.unmakeMove(undo);
+                statistics.onPrunedMove();
+                value = Math.max(value, futilityValue);
+                continue;
+            }
+
+            int moveValue;
+            if (reductionAllowed && quiet && i >= REDUCTION_FULL_DEPTH_MOVES) {
+                statistics.onReducedMove();
+                moveValue = -alphaBeta(depth - 1 - REDUCTION, ply + 1, -alpha - 1, -alpha);
+                if (moveValue > alpha && !isStopped()) {
+                    statistics.onResearch();
+                    moveValue = searchMove(depth, ply, alpha, beta, owner.isPrincipalVariationSearchEnabled());
+                }
+            } else {
+                moveValue = searchMove(depth, ply, alpha, beta,
+                        i > 0 && owner.isPrincipalVariationSearchEnabled());
+            }
+            searchGrid.unmakeMove(undo);
+            if (isStopped()) return value;
+            if (ply == REPLY_MOVES_PLY) {
+                // Moves no better than the best one so far go below it, so the best one can be told apart
+                replyMoveScores[order[i]] = i == 0 || moveValue > value ? moveValue : Math.min(moveValue, value - 1);
+            }
+
+            if (i == 0 || moveValue > value) {
+                value = moveValue;
+                updatePrincipalVariation(ply, MoveList.getCode(moves.get(order[i])), order[i]);
+            }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                onCutoff(moves.get(order[i]), i, depth, ply);
+                break;
+            }
+        }
+
+        if (transpositionTable != null) {
+            transpositionTable.store(key, depth, getBound(value, alphaOrig, betaOrig), value,
+                    moves.isEmpty() ? TranspositionTable.NO_MOVE : principalVariations[ply][ply]);
+        }
+
+        return value;
+    }
+
+    /**
+     * Make {@code move} the best move of given {@code ply}, followed by the line found for
+     * the next ply.
+     *
+     * @param ply distance of the position from the root
+     * @param move encoded move
+     * @param moveIndex index of the move in the {@link MoveList} of the ply
+     */
+    private void updatePrincipalVariation(int ply, int move, int moveIndex) {
+        final int[] variation = principalVariations[ply];
+        final int length = principalVariationLengths[ply + 1];
+
+        variation[ply] = move;
+        bestMoveIndices[ply] = moveIndex;
+        if (ply == REPLY_MOVES_PLY - 1) keepReplyMoveScores();
+        System.arraycopy(principalVariations[ply + 1], ply + 1, variation, ply + 1, length - ply - 1);
+        principalVariationLengths[ply] = length;
+    }
+
+    /**
+     * Start recording scores of moves of the node at {@link SearchWorker#REPLY_MOVES_PLY}. Moves
+     * that end up pruned or not searched at all keep the lowest score.
+     *
+     * @param moveCount number of moves of the node
+     */
+    private void clearReplyMoveScores(int moveCount) {
+        if (replyMoveScores.length < moveCount) {
+            replyMoveScores = new int[Math.max(moveCount, replyMoveScores.length * 2)];
+        }
+
+        Arrays.fill(replyMoveScores, 0, moveCount, Integer.MIN_VALUE + 1);
+        replyMoveCount = moveCount;
+    }
+
+    /**
+     * Keep scores of moves of the node searched last at {@link SearchWorker#REPLY_MOVES_PLY},
+     * the one after the reply that has just become the best one.
+     */
+    private void keepReplyMoveScores() {
+        bestReplyMoveCount = replyMoveCount;
+        if (replyMoveCount == -1) return;
+
+        if (bestReplyMoveScores.length < replyMoveCount) {
+            bestReplyMoveScores = new int[replyMoveScores.length];
+        }
+        System.arraycopy(replyMoveScores, 0, bestReplyMoveScores, 0, replyMoveCount);
+    }
+
+    /**
+     * Search only captures until the position is quiet, so it's not evaluated in the middle of
+     * an exchange. Unless captures are mandatory, the side to move can decline to capture, so
+     * the static value of the position is a lower bound of its score (stand pat).
+     *
+     * @param alpha algorithm based limiting factor
+     * @param beta algorithm based limiting factor
+     * @param player side to move
+     * @param opponent the other side
+     * @param ply distance from the leaf of the main search
+     * @return value of the position for the side to move
+     */
+    private int quiesce(int alpha, int beta, PlayerNum player, PlayerNum opponent, int ply) {
+        if (shouldAbort()) {
+            return 0;
+        }
+
+        statistics.onQuiescenceNode();
+
+        // Once the limit is reached, positions are evaluated statically and no further captures are searched
+        final int standPat = searchGrid.getValue(player, opponent);
+        if (++quiescenceNodes >= owner.getQuiescenceNodeLimit()) {
+            return standPat;
+        }
+
+        if (ply == quiescenceUndoStack.size()) {
+            quiescenceUndoStack.add(new MoveUndo());
+            quiescenceMoveLists.add(new MoveList());
+        }
+        final MoveUndo undo = quiescenceUndoStack.get(ply);
+        final MoveList moves = quiescenceMoveLists.get(ply);
+
+        searchGrid.generateMoves(player, moves);
+
+        boolean captureFound = false;
+        for (int i = 0; i < moves.size() && !captureFound; ++i) {
+            captureFound = MoveList.getCaptureCount(moves.get(i)) > 0;
+        }
+
+        if (!captureFound) {
+            return standPat;
+        }
+
+        final boolean standPatAllowed = !searchGrid.isMandatoryCapture();
+        if (standPatAllowed) {
+            if (standPat >= beta) return standPat;
+            alpha = Math.max(alpha, standPat);
+        }
+
+        int value = standPatAllowed ? standPat : Integer.MIN_VALUE + 1;
+
+        for (int i = 0; i < moves.size(); ++i) {
+            if (MoveList.getCaptureCount(moves.get(i)) == 0) continue;
+            if (quiescenceNodes >= owner.getQuiescenceNodeLimit()) break;
+
+            searchGrid.makeMove(moves, i, undo);
+            final int moveValue = -quiesce(-beta, -alpha, opponent, player, ply + 1);
+            searchGrid.unmakeMove(undo);
+            if (isStopped()) return value;
+
+            value = Math.max(value, moveValue);
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) break;
+        }
+
+        return value;
+    }
+
+    /**
+     * Record a cutoff in statistics and let {@link MoveOrdering} learn from it.
+     *
+     * @param move move that caused the cutoff, as stored in {@link MoveList}
+     * @param index index of the move in the searched order
+     * @param depth remaining depth of the position where the cutoff happened
+     * @param ply distance of the position where the cutoff happened from the root
+     */
+    private void onCutoff(long move, int index, int depth, int ply) {
+        statistics.onCutoff(index == 0);
+        if (owner.isMoveOrderingEnabled()) {
+            moveOrdering.onCutoff(move, depth, ply);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.cyberbot.checkers.game.ai;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results used by {@link AiPlayer} to avoid searching the same
+ * position twice when it's reached by different move orders. Entries are addressed by the lowest
+ * bits of the position hash, so the number of entries is always a power of two.
+ *
+ * When two positions compete for the same slot, the result of the deeper search is kept, unless
+ * the stored entry comes from one of the previous searches (see {@link TranspositionTable#newSearch()}).
+ *
+ * The table is shared by all search threads without any locking. Each entry is packed into two
+ * {@code long}s - the data word, holding score, move, depth, bound and generation, and the key
+ * XOR-ed with the data word. An entry overwritten by another thread in the middle of reading
+ * doesn't match the key anymore, so torn entries are treated as missing.
+ */
+class TranspositionTable {
+    static final int BOUND_EXACT = 0;
+    static final int BOUND_LOWER = 1;
+    static final int BOUND_UPPER = 2;
+
+    static final int NO_MOVE = -1;
+
+    /**
+     * Memory taken by a single entry: key and data words.
+     */
+    static final int ENTRY_SIZE = 8 + 8;
+
+    /*
+     * Layout of the data word, from the lowest bit:
+     * score (24 bits), move source (12), move destination (12), depth (7), bound (2), generation (6), valid (1)
+     */
+    private static final int SCORE_BITS = 24;
+    private static final int SQUARE_BITS = 12;
+    private static final int MOVE_SHIFT = SCORE_BITS;
+    private static final int DEPTH_SHIFT = MOVE_SHIFT + 2 * SQUARE_BITS;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 7;
+    private static final int GENERATION_SHIFT = BOUND_SHIFT + 2;
+    private static final long VALID_BIT = 1L << 63;
+
+    private static final int SCORE_MAX = (1 << (SCORE_BITS - 1)) - 1;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int MOVE_MASK = (1 << 2 * SQUARE_BITS) - 1;
+    private static final int MAX_DEPTH = 0x7F;
+    private static final int GENERATION_MASK = 0x3F;
+
+    private final long[] entries;
+    private final int mask;
+
+    private volatile int generation = 0;
+
+    /**
+     * Constructs the table taking at most {@code maxBytes} of memory. The number of entries is
+     * the largest power of two that fits in the limit.
+     *
+     * @param maxBytes Memory cap in bytes. Must allow at least one entry
+     */
+    TranspositionTable(long maxBytes) {
+        if (maxBytes < ENTRY_SIZE) {
+            throw new IllegalArgumentException("Transposition table needs at least " + ENTRY_SIZE + " bytes");
+        }
+
+        final long maxEntries = Math.min(maxBytes / ENTRY_SIZE, 1 << 29);
+        final int capacity = Integer.highestOneBit((int) maxEntries);
+
+        entries = new long[2 * capacity];
+        mask = capacity - 1;
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Mark the start of a new search. Entries from previous searches are replaced regardless of
+     * their depth, so the table doesn't fill up with deep but outdated results.
+     */
+    void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Remove all entries from the table. Must not be called during a search.
+     */
+    void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    /**
+     * Look up the entry of the position with given {@code key}. Content of the returned entry can
+     * be read with {@link TranspositionTable#getScore(long)}, {@link TranspositionTable#getMove(long)},
+     * {@link TranspositionTable#getDepth(long)} and {@link TranspositionTable#getBound(long)}.
+     *
+     * @param key Hash of the position
+     * @return The data word of the entry or 0 if the position is not in the table
+     */
+    long probe(long key) {
+        final int index = ((int) key & mask) << 1;
+        final long data = entries[index + 1];
+        final long checkedKey = entries[index];
+
+        if ((data & VALID_BIT) == 0 || (checkedKey ^ data) != key) return 0;
+
+        return data;
+    }
+
+    /**
+     * Store the result of the search. The entry replaces the one in the slot if the slot is empty,
+     * holds an entry from a previous search or an entry of not greater depth.
+     *
+     * @param key Hash of the position
+     * @param depth Remaining search depth the result was computed with
+     * @param bound Type of the score - {@link TranspositionTable#BOUND_EXACT},
+     *              {@link TranspositionTable#BOUND_LOWER} or {@link TranspositionTable#BOUND_UPPER}
+     * @param score Score of the position
+     * @param move Encoded best move or {@link TranspositionTable#NO_MOVE}
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        final int index = ((int) key & mask) << 1;
+        final long oldData = entries[index + 1];
+        final boolean oldValid = (oldData & VALID_BIT) != 0;
+        final int currentGeneration = generation;
+
+        if (oldValid
+                && getGeneration(oldData) == currentGeneration
+                && getDepth(oldData) > depth) {
+            return;
+        }
+
+        // Keep the old best move if the new search didn't find any for the same position
+        if (move == NO_MOVE && oldValid && (entries[index] ^ oldData) == key) {
+            move = getMove(oldData);
+        }
+
+        final long data = VALID_BIT
+                | (long) currentGeneration << GENERATION_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT
+                | (long) packMove(move) << MOVE_SHIFT
+                | packScore(score);
+
+        entries[index] = key ^ data;
+        entries[index + 1] = data;
+    }
+
+    /**
+     * Pack the score into {@link TranspositionTable#SCORE_BITS}. Board values are much smaller than
+     * the limit, the only scores that don't fit are the ones of won and lost positions
+     * ({@code Integer.MAX_VALUE - 1} and {@code Integer.MIN_VALUE + 1}), which are saturated.
+     */
+    private static long packScore(int score) {
+        final int clamped = Math.max(-SCORE_MAX, Math.min(SCORE_MAX, score));
+        return clamped & ((1L << SCORE_BITS) - 1);
+    }
+
+    /**
+     * Pack the move into two {@link TranspositionTable#SQUARE_BITS} square indexes, which is
+     * enough for boards up to 90x90.
+     */
+    private static int packMove(int move) {
+        if (move == NO_MOVE) return MOVE_MASK;
+
+        return ((move >>> 16) & SQUARE_MASK) << SQUARE_BITS | (move & SQUARE_MASK);
+    }
+
+    static int getScore(long data) {
+        final int score = (int) (data << (64 - SCORE_BITS) >> (64 - SCORE_BITS));
+
+        if (score == SCORE_MAX) return Integer.MAX_VALUE - 1;
+        if (score == -SCORE_MAX) return Integer.MIN_VALUE + 1;
+        return score;
+    }
+
+    static int getMove(long data) {
+        final int move = (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+        if (move == MOVE_MASK) return NO_MOVE;
+
+        return (move >>> SQUARE_BITS) << 16 | (move & SQUARE_MASK);
+    }
+
+    static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int getGeneration(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+}
@@ -0,0 +1,289 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Stores the state of all playable (dark) squares of the board as primitive bitsets. Each
+ * playable square gets a dense square index in range {@code [0, getSquareCount())}, computed
+ * as {@code (y * size + x) / 2}, so the board of any size can be represented. Boards that don't
+ * fit in a single {@code long} are split into multiple 64-bit words.
+ *
+ * Three bitsets are kept: pieces of {@link PlayerNum#FIRST}, pieces of {@link PlayerNum#SECOND}
+ * and kings of both players. A square is empty when it's not set in any of the player bitsets.
+ *
+ * @see Grid
+ */
+public class BitBoard implements Serializable {
+    private final int size;
+    private final int squareCount;
+    private final long[] firstPieces;
+    private final long[] secondPieces;
+    private final long[] kings;
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSquareCount() {
+        return squareCount;
+    }
+
+    /**
+     * Constructs an empty {@link BitBoard} for the board of given {@code size}.
+     *
+     * @param size Size of the board. Board's dimensions will be [{@code size} x {@code size}]
+     */
+    BitBoard(int size) {
+        final int words = (getSquareCount(size) + 63) >>> 6;
+
+        this.size = size;
+        this.squareCount = getSquareCount(size);
+        this.firstPieces = new long[words];
+        this.secondPieces = new long[words];
+        this.kings = new long[words];
+    }
+
+    /**
+     * Constructs a copy of {@code other} board.
+     *
+     * @param other {@link BitBoard} to be copied. Cannot be null
+     */
+    BitBoard(@NotNull BitBoard other) {
+        this.size = other.size;
+        this.squareCount = other.squareCount;
+        this.firstPieces = other.firstPieces.clone();
+        this.secondPieces = other.secondPieces.clone();
+        this.kings = other.kings.clone();
+    }
+
+    /**
+     * Get the number of playable squares on the board of given {@code size}.
+     *
+     * @param size Size of the board
+     * @return Number of playable squares
+     */
+    @Contract(pure = true)
+    public static int getSquareCount(int size) {
+        return size * size / 2;
+    }
+
+    /**
+     * Get square index of the entry with given coordinates.
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @return Square index or -1 when coordinates are out of the board or point to
+     * a non-playable (light) square
+     */
+    @Contract(pure = true)
+    public int getSquare(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size || ((x ^ y) & 1) == 0) return -1;
+
+        return (y * size + x) >>> 1;
+    }
+
+    /**
+     * Get x-coordinate of the square with given index.
+     *
+     * @param square Square index
+     * @return x-coordinate of the square
+     */
+    @Contract(pure = true)
+    public int getSquareX(int square) {
+        if ((size & 1) == 1) return (2 * square + 1) % size;
+
+        final int half = size >>> 1;
+        final int y = square / half;
+        return 2 * (square % half) + (~y & 1);
+    }
+
+    /**
+     * Get y-coordinate of the square with given index.
+     *
+     * @param square Square index
+     * @return y-coordinate of the square
+     */
+    @Contract(pure = true)
+    public int getSquareY(int square) {
+        if ((size & 1) == 1) return (2 * square + 1) / size;
+
+        return square / (size >>> 1);
+    }
+
+    @Contract(pure = true)
+    private static boolean test(@NotNull long[] bits, int square) {
+        return (bits[square >>> 6] & (1L << square)) != 0;
+    }
+
+    /**
+     * Get the owner of the piece at given square.
+     *
+     * @param square Square index
+     * @return {@link PlayerNum} owning the piece or {@link PlayerNum#NOPLAYER} if the square is empty
+     */
+    @NotNull
+    public PlayerNum getPlayer(int square) {
+        if (test(firstPieces, square)) return PlayerNum.FIRST;
+        if (test(secondPieces, square)) return PlayerNum.SECOND;
+
+        return PlayerNum.NOPLAYER;
+    }
+
+    /**
+     * Get the type of the piece at given square.
+     *
+     * @param square Square index
+     * @return {@link PieceType} of the piece or {@link PieceType#UNASSIGNED} if the square is empty
+     */
+    @NotNull
+    public PieceType getPieceType(int square) {
+        if (isEmpty(square)) return PieceType.UNASSIGNED;
+
+        return test(kings, square) ? PieceType.KING : PieceType.ORDINARY;
+    }
+
+    public boolean isEmpty(int square) {
+        final int word = square >>> 6;
+        final long mask = 1L << square;
+
+        return ((firstPieces[word] | secondPieces[word]) & mask) == 0;
+    }
+
+    public boolean isKing(int square) {
+        return test(kings, square);
+    }
+
+    /**
+     * Tell if the square is occupied by given {@code player}.
+     *
+     * @param square Square index
+     * @param player {@link PlayerNum} to check against. For {@link PlayerNum#NOPLAYER} the result
+     *               is the same as {@link BitBoard#isEmpty(int)}
+     * @return {@code true} if the square belongs to {@code player}, {@code false} otherwise
+     */
+    public boolean isOccupiedBy(int square, PlayerNum player) {
+        if (player == PlayerNum.NOPLAYER) return isEmpty(square);
+
+        return test(player == PlayerNum.FIRST ? firstPieces : secondPieces, square);
+    }
+
+    /**
+     * Put a piece on given square, replacing whatever was there before. Setting {@code player} to
+     * {@link PlayerNum#NOPLAYER} or {@code pieceType} to {@link PieceType#UNASSIGNED} empties the square.
+     *
+     * @param square Square index
+     * @param player Owner of the piece
+     * @param pieceType Type of the piece
+     */
+    void setPiece(int square, PlayerNum player, PieceType pieceType) {
+        final int word = square >>> 6;
+        final long mask = 1L << square;
+
+        firstPieces[word] &= ~mask;
+        secondPieces[word] &= ~mask;
+        kings[word] &= ~mask;
+
+        if (player == PlayerNum.NOPLAYER || pieceType == PieceType.UNASSIGNED) return;
+
+        if (player == PlayerNum.FIRST) firstPieces[word] |= mask;
+        else secondPieces[word] |= mask;
+
+        if (pieceType == PieceType.KING) kings[word] |= mask;
+    }
+
+    /**
+     * Tell if {@code other} board has the same size and the same pieces on all squares.
+     *
+     * @param other {@link BitBoard} to compare with. Cannot be null
+     * @return {@code true} if both boards hold the same position
+     */
+    boolean hasSamePieces(@NotNull BitBoard other) {
+        return size == other.size
+                && Arrays.equals(firstPieces, other.firstPieces)
+                && Arrays.equals(secondPieces, other.secondPieces)
+                && Arrays.equals(kings, other.kings);
+    }
+
+    /**
+     * Remove a piece from given square.
+     *
+     * @param square Square index
+     */
+    void clearPiece(int square) {
+        setPiece(square, PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+    }
+
+    /**
+     * Count all pieces (both ordinary and kings) of given {@code player}.
+     *
+     * @param player {@link PlayerNum} we want to count pieces for. Cannot be {@link PlayerNum#NOPLAYER}
+     * @return Number of pieces
+     */
+    public int countPieces(PlayerNum player) {
+        final long[] pieces = getPieces(player);
+
+        int count = 0;
+        for (long word : pieces) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Count kings of given {@code player}.
+     *
+     * @param player {@link PlayerNum} we want to count kings for. Cannot be {@link PlayerNum#NOPLAYER}
+     * @return Number of kings
+     */
+    public int countKings(PlayerNum player) {
+        final long[] pieces = getPieces(player);
+
+        int count = 0;
+        for (int i = 0; i < pieces.length; ++i) {
+            count += Long.bitCount(pieces[i] & kings[i]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Find the first square occupied by {@code player} at index {@code from} or after it.
+     * Similar to {@link java.util.BitSet#nextSetBit(int)}, it can be used to iterate over pieces:
+     *
+     * <pre>{@code
+     * for (int s = board.nextPiece(player, 0); s != -1; s = board.nextPiece(player, s + 1)) { ... }
+     * }</pre>
+     *
+     * @param player {@link PlayerNum} owning the pieces. Cannot be {@link PlayerNum#NOPLAYER}
+     * @param from Square index to start looking from (inclusive)
+     * @return Square index of the next piece or -1 if there is no more pieces
+     */
+    public int nextPiece(PlayerNum player, int from) {
+        if (from >= squareCount) return -1;
+
+        final long[] pieces = getPieces(player);
+
+        int word = from >>> 6;
+        long bits = pieces[word] & (-1L << from);
+
+        while (true) {
+            if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == pieces.length) return -1;
+            bits = pieces[word];
+        }
+    }
+
+    @NotNull
+    private long[] getPieces(PlayerNum player) {
+        if (player == PlayerNum.NOPLAYER) {
+            throw new IllegalArgumentException("NOPLAYER doesn't own any pieces");
+        }
+
+        return player == PlayerNum.FIRST ? firstPieces : secondPieces;
+    }
+}
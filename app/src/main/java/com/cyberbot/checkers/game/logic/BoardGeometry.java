@@ -0,0 +1,154 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup tables describing diagonals of the board of a given size, so move generation can walk
+ * squares without computing coordinates or checking bounds. Tables are built once per size and
+ * shared by all {@link Grid} instances.
+ *
+ * Squares are indexed like in {@link BitBoard}. Each square has four diagonal directions,
+ * indexed from 0 to {@link BoardGeometry#DIRECTIONS} - 1 - towards lower x and lower y, lower x
+ * and higher y, higher x and lower y, higher x and higher y. The ray of a square in a direction
+ * holds all squares met when moving from the square in that direction until the edge of the board,
+ * nearest first:
+ *
+ * <pre>{@code
+ * for (int i = geometry.getRayStart(square, d); i < geometry.getRayEnd(square, d); ++i) {
+ *     final int next = geometry.getRaySquare(i);
+ * }
+ * }</pre>
+ */
+public final class BoardGeometry {
+    public static final int DIRECTIONS = 4;
+
+    private static final int[] DIRECTION_X = {-1, -1, 1, 1};
+    private static final int[] DIRECTION_Y = {-1, 1, -1, 1};
+    private static final ConcurrentHashMap<Integer, BoardGeometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[] squareX;
+    private final int[] squareY;
+    private final int[] neighbors;
+    private final int[] rayOffsets;
+    private final int[] raySquares;
+
+    private BoardGeometry(int size) {
+        final BitBoard board = new BitBoard(size);
+        final int squareCount = board.getSquareCount();
+
+        this.size = size;
+        squareX = new int[squareCount];
+        squareY = new int[squareCount];
+        neighbors = new int[squareCount * DIRECTIONS];
+        rayOffsets = new int[squareCount * DIRECTIONS + 1];
+
+        int raySquareCount = 0;
+        for (int square = 0; square < squareCount; ++square) {
+            squareX[square] = board.getSquareX(square);
+            squareY[square] = board.getSquareY(square);
+
+            for (int d = 0; d < DIRECTIONS; ++d) {
+                final int index = square * DIRECTIONS + d;
+                neighbors[index] = board.getSquare(squareX[square] + DIRECTION_X[d], squareY[square] + DIRECTION_Y[d]);
+
+                rayOffsets[index] = raySquareCount;
+                raySquareCount += getRayLength(squareX[square], squareY[square], d);
+            }
+        }
+        rayOffsets[squareCount * DIRECTIONS] = raySquareCount;
+
+        raySquares = new int[raySquareCount];
+        for (int square = 0; square < squareCount; ++square) {
+            for (int d = 0; d < DIRECTIONS; ++d) {
+                int i = rayOffsets[square * DIRECTIONS + d];
+                int x = squareX[square];
+                int y = squareY[square];
+
+                int next;
+                while ((next = board.getSquare(x += DIRECTION_X[d], y += DIRECTION_Y[d])) != -1) {
+                    raySquares[i++] = next;
+                }
+            }
+        }
+    }
+
+    private int getRayLength(int x, int y, int direction) {
+        final int stepsX = DIRECTION_X[direction] < 0 ? x : size - 1 - x;
+        final int stepsY = DIRECTION_Y[direction] < 0 ? y : size - 1 - y;
+
+        return Math.min(stepsX, stepsY);
+    }
+
+    /**
+     * Get tables for the board of given {@code size}. Tables are built once per size and shared.
+     *
+     * @param size Size of the board
+     * @return {@link BoardGeometry} of the board
+     */
+    @NotNull
+    public static BoardGeometry forSize(int size) {
+        BoardGeometry geometry = GEOMETRIES.get(size);
+        if (geometry != null) return geometry;
+
+        geometry = new BoardGeometry(size);
+        final BoardGeometry previous = GEOMETRIES.putIfAbsent(size, geometry);
+        return previous != null ? previous : geometry;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSquareX(int square) {
+        return squareX[square];
+    }
+
+    public int getSquareY(int square) {
+        return squareY[square];
+    }
+
+    /**
+     * Tell if moving in given {@code direction} increases the y-coordinate.
+     *
+     * @param direction Direction index
+     * @return {@code true} for directions towards higher y, {@code false} otherwise
+     */
+    @Contract(pure = true)
+    public static boolean isTowardsHigherY(int direction) {
+        return DIRECTION_Y[direction] > 0;
+    }
+
+    /**
+     * Get the square adjacent to {@code square} in given {@code direction}.
+     *
+     * @param square Square index
+     * @param direction Direction index
+     * @return Square index or -1 if {@code square} is at the edge of the board
+     */
+    public int getNeighbor(int square, int direction) {
+        return neighbors[square * DIRECTIONS + direction];
+    }
+
+    /**
+     * Get the index of the first square of the ray of {@code square} in {@code direction},
+     * to be passed to {@link BoardGeometry#getRaySquare(int)}.
+     */
+    public int getRayStart(int square, int direction) {
+        return rayOffsets[square * DIRECTIONS + direction];
+    }
+
+    /**
+     * Get the index just past the last square of the ray of {@code square} in {@code direction}.
+     */
+    public int getRayEnd(int square, int direction) {
+        return rayOffsets[square * DIRECTIONS + direction + 1];
+    }
+
+    public int getRaySquare(int index) {
+        return raySquares[index];
+    }
+}
@@ -17,18 +17,16 @@ public class Destination {
     private final ArrayList<GridEntry> intermediateSteps;
 
     /**
-     * Parse given {@link CaptureChain} object and extracts destination entry, captured pieces
-     * and intermediate steps from it. This constructor should be called when moving the piece
-     * involves a capture.
+     * Constructs {@link Destination} of a move that involves a capture.
      *
-     * @param captureChain A {@link CaptureChain} object. Cannot be null
-     *
-     * @see CaptureChain
+     * @param destinationEntry Entry at which the piece lands after the last capture. Cannot be null
+     * @param capturedPieces Captured pieces in order of capturing. Cannot be null
+     * @param intermediateSteps Entries at which the piece lands after each capture but the last one. Cannot be null
      */
-    Destination(@NotNull CaptureChain captureChain) {
-        destinationEntry = captureChain.getLocationAfterCapture();
-        capturedPieces = captureChain.getCapturedPieces();
-        intermediateSteps = captureChain.getIntermediateSteps();
+    Destination(@NotNull GridEntry destinationEntry, @NotNull ArrayList<GridEntry> capturedPieces, @NotNull ArrayList<GridEntry> intermediateSteps) {
+        this.destinationEntry = destinationEntry;
+        this.capturedPieces = capturedPieces;
+        this.intermediateSteps = intermediateSteps;
     }
 
     /**
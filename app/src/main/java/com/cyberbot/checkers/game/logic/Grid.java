@@ -6,27 +6,50 @@ import org.jetbrains.annotations.Nullable;
 
 import com.cyberbot.checkers.preferences.Preferences;
 
-import org.apache.commons.lang3.SerializationUtils;
-
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 /**
  * Represents a grid in the checkers game. Basically, it is used to store {@link GridEntry} objects,
  * that represent player pieces and also to perform several game logic tasks such as possible
  * moves and captures calculations.
  *
+ * The state of the pieces is kept in a {@link BitBoard}, which is the source of truth for all
+ * game logic calculations. {@link GridEntry} objects are kept in sync with it, so they can be
+ * conveniently used by the UI.
+ *
  * It also implements {@link Iterable} so one can iterate conveniently over its entries.
  */
 public class Grid implements Iterable<GridEntry>, Serializable {
+    /**
+     * Number of consecutive king moves without captures that ends the game with
+     * {@link GameEndReason#DRAW_TOO_MANY_KING_ONLY_MOVES}.
+     */
+    public static final int KING_ONLY_MOVE_LIMIT = 25;
+
     private final int size;
     private final ArrayList<GridEntry> gridEntries;
-    private transient HashMap<GridEntry, ArrayList<Destination>> movableEntriesCache;
+    private final BitBoard board;
+    private transient long[] zobristKeys;
+    private transient int[] pieceSquareTables;
+    private transient BoardGeometry geometry;
+
+    // Movable entries of each player, valid as long as their version matches the position
+    private transient volatile MovableEntries firstPlayerMovableEntries;
+    private transient volatile MovableEntries secondPlayerMovableEntries;
+    private transient long version;
+    private transient long lastVersion;
 
     private int moveCount = 0;
+    private long hash = 0;
+
+    // Piece counts, material and evaluation of each player, indexed with PlayerNum ordinals
+    private final int[] ordinaryCounts = new int[PlayerNum.values().length];
+    private final int[] kingCounts = new int[PlayerNum.values().length];
+    private final int[] material = new int[PlayerNum.values().length];
+    private final int[] values = new int[PlayerNum.values().length];
 
     // Preferences
     private boolean canMoveBackwards = false;
@@ -38,6 +61,10 @@ public class Grid implements Iterable<GridEntry>, Serializable {
         return size;
     }
 
+    public boolean isMandatoryCapture() {
+        return mandatoryCapture;
+    }
+
     /**
      * Default constructor, that creates {@link Grid} object
      * with 10x10 board and 4 player rows.
@@ -63,21 +90,18 @@ public class Grid implements Iterable<GridEntry>, Serializable {
 
         this.size = size;
         gridEntries = new ArrayList<>();
-        movableEntriesCache = null;
+        board = new BitBoard(size);
 
         for (int i = 0; i < size * size; ++i) {
             int y = i / size;
             GridEntry entry = new GridEntry(i % size, y);
+            gridEntries.add(entry);
 
             if (y < playerRows && entry.legal()) {
-                entry.setPlayer(PlayerNum.FIRST);
-                entry.setPieceType(PieceType.ORDINARY);
+                setEntryState(entry, PlayerNum.FIRST, PieceType.ORDINARY);
             } else if (y >= size - playerRows && entry.legal()) {
-                entry.setPlayer(PlayerNum.SECOND);
-                entry.setPieceType(PieceType.ORDINARY);
+                setEntryState(entry, PlayerNum.SECOND, PieceType.ORDINARY);
             }
-
-            gridEntries.add(entry);
         }
     }
 
@@ -99,6 +123,76 @@ public class Grid implements Iterable<GridEntry>, Serializable {
         this.mandatoryCapture = mandatoryCapture;
     }
 
+    /**
+     * Constructs a deep copy of {@code other}. The copy doesn't share any {@link GridEntry}
+     * objects with the original and starts with empty movable entries caches.
+     *
+     * @param other {@link Grid} to be copied. Cannot be null
+     */
+    public Grid(@NotNull Grid other) {
+        this.size = other.size;
+        this.gridEntries = new ArrayList<>(other.gridEntries.size());
+        this.board = new BitBoard(other.board);
+
+        for (GridEntry otherEntry : other.gridEntries) {
+            GridEntry entry = new GridEntry(otherEntry.getX(), otherEntry.getY());
+            entry.setPlayer(otherEntry.getPlayer());
+            entry.setPieceType(otherEntry.getPieceType());
+            gridEntries.add(entry);
+        }
+
+        this.moveCount = other.moveCount;
+        this.hash = other.hash;
+        System.arraycopy(other.ordinaryCounts, 0, ordinaryCounts, 0, ordinaryCounts.length);
+        System.arraycopy(other.kingCounts, 0, kingCounts, 0, kingCounts.length);
+        System.arraycopy(other.material, 0, material, 0, material.length);
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        this.canMoveBackwards = other.canMoveBackwards;
+        this.canCaptureBackwards = other.canCaptureBackwards;
+        this.flyingKing = other.flyingKing;
+        this.mandatoryCapture = other.mandatoryCapture;
+    }
+
+    /**
+     * Constructs {@link Grid} holding given {@code position}.
+     *
+     * @param position Snapshot exported with {@link Grid#toPosition()}. Cannot be null
+     */
+    public Grid(@NotNull Position position) {
+        final BitBoard positionBoard = position.getBoard();
+
+        this.size = position.getSize();
+        this.gridEntries = new ArrayList<>(size * size);
+        this.board = new BitBoard(size);
+
+        for (int i = 0; i < size * size; ++i) {
+            GridEntry entry = new GridEntry(i % size, i / size);
+            gridEntries.add(entry);
+
+            final int square = getSquare(entry);
+            if (square != -1 && !positionBoard.isEmpty(square)) {
+                setEntryState(entry, positionBoard.getPlayer(square), positionBoard.getPieceType(square));
+            }
+        }
+
+        this.moveCount = position.getMoveCount();
+        this.canMoveBackwards = position.canMoveBackwards();
+        this.canCaptureBackwards = position.canCaptureBackwards();
+        this.flyingKing = position.isFlyingKing();
+        this.mandatoryCapture = position.isMandatoryCapture();
+    }
+
+    /**
+     * Export the current position as an immutable snapshot. Only the bitsets of {@link Grid#board}
+     * are copied, so it's much cheaper than copying the whole grid.
+     *
+     * @return {@link Position} of the grid
+     */
+    @NotNull
+    public Position toPosition() {
+        return new Position(board, moveCount, hash, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+    }
+
     /**
      * Constructs {@link Grid} object based on given {@link Preferences}.
      *
@@ -121,6 +215,31 @@ public class Grid implements Iterable<GridEntry>, Serializable {
         );
     }
 
+    @NotNull
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Get Zobrist hash of the current placement of pieces. It's updated incrementally with
+     * every change on the board, so it's cheap to call. The hash doesn't include the side to
+     * move - see {@link Zobrist#SIDE_KEY}.
+     *
+     * @return Hash of the position
+     *
+     * @see Zobrist
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the number of consecutive king moves without captures, see {@link Grid#KING_ONLY_MOVE_LIMIT}.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
     /**
      * Tells if given coordinates are valid indexes for {@link Grid#gridEntries}.
      *
@@ -134,7 +253,8 @@ public class Grid implements Iterable<GridEntry>, Serializable {
     }
 
     /**
-     * Look for specific {@link GridEntry} in {@link Grid#gridEntries}.
+     * Look for specific {@link GridEntry} in {@link Grid#gridEntries}. Entries are laid out
+     * row by row, so the entry is addressed directly at index {@code y * size + x}.
      *
      * @param x x-coordinate of searched {@link GridEntry}
      * @param y y-coordinate of searched {@link GridEntry}
@@ -149,11 +269,133 @@ public class Grid implements Iterable<GridEntry>, Serializable {
             throw new IndexOutOfBoundsException("Coordinates (" + x + ", " + y + ") out of bounds for grid with size " + size);
         }
 
-        for (GridEntry e : gridEntries) {
-            if (e.getX() == x && e.getY() == y) return e;
+        final GridEntry entry = gridEntries.get(y * size + x);
+        if (entry.getX() != x || entry.getY() != y) {
+            throw new RuntimeException("Entry (" + x + ", " + y + ") not found in Grid");
         }
 
-        throw new RuntimeException("Entry (" + x + ", " + y + ") not found in Grid");
+        return entry;
+    }
+
+    /**
+     * Get index of {@code entry} in {@link Grid#gridEntries} without searching the list.
+     *
+     * @param entry {@link GridEntry} we want to find
+     * @return Index of the entry or -1 if there is no such entry in {@link Grid#gridEntries}
+     */
+    private int indexOfEntry(@NotNull GridEntry entry) {
+        final int x = entry.getX();
+        final int y = entry.getY();
+
+        if (!coordsValid(x, y)) return -1;
+
+        return y * size + x;
+    }
+
+    /**
+     * Get {@link GridEntry} representing the square with given index in {@link Grid#board}.
+     *
+     * @param square Square index
+     * @return {@link GridEntry} at the square
+     */
+    @NotNull
+    private GridEntry getEntryBySquare(int square) {
+        return gridEntries.get(board.getSquareY(square) * size + board.getSquareX(square));
+    }
+
+    /**
+     * Get index of the square in {@link Grid#board} that is represented by {@code entry}.
+     *
+     * @param entry {@link GridEntry} we want to get square index for
+     * @return Square index or -1 if {@code entry} is not legal
+     */
+    private int getSquare(@NotNull GridEntry entry) {
+        return board.getSquare(entry.getX(), entry.getY());
+    }
+
+    /**
+     * Get the owner of the piece at {@code entry} based on {@link Grid#board}.
+     *
+     * @param entry {@link GridEntry} to check
+     * @return Owner of the piece or {@link PlayerNum#NOPLAYER} if the entry is empty or not legal
+     */
+    @NotNull
+    private PlayerNum getPlayerAt(@NotNull GridEntry entry) {
+        final int square = getSquare(entry);
+        return square == -1 ? PlayerNum.NOPLAYER : board.getPlayer(square);
+    }
+
+    /**
+     * Set the state of {@code entry} and the matching square of {@link Grid#board}. All changes
+     * of piece placement should go through this method to keep both representations, the hash,
+     * the piece counts and the evaluation in sync. Every change gets the position a new
+     * {@link Grid#version}, which invalidates cached movable entries.
+     *
+     * @param entry {@link GridEntry} to be changed
+     * @param player New owner of the entry
+     * @param pieceType New piece type of the entry
+     */
+    private void setEntryState(@NotNull GridEntry entry, PlayerNum player, PieceType pieceType) {
+        entry.setPlayer(player);
+        entry.setPieceType(pieceType);
+
+        final int square = getSquare(entry);
+        if (square != -1) {
+            if (zobristKeys == null) zobristKeys = Zobrist.getPieceKeys(size);
+
+            hash ^= Zobrist.getKey(zobristKeys, square, board.getPlayer(square), board.getPieceType(square));
+            updateCounts(square, board.getPlayer(square), board.getPieceType(square), -1);
+            board.setPiece(square, player, pieceType);
+            hash ^= Zobrist.getKey(zobristKeys, square, player, pieceType);
+            updateCounts(square, player, pieceType, 1);
+            version = ++lastVersion;
+        }
+    }
+
+    /**
+     * Add {@code delta} pieces of given type placed at {@code square} to the counts and
+     * the evaluation of {@code player}.
+     */
+    private void updateCounts(int square, PlayerNum player, PieceType pieceType, int delta) {
+        if (player == PlayerNum.NOPLAYER || pieceType == PieceType.UNASSIGNED) return;
+        if (pieceSquareTables == null) pieceSquareTables = PieceSquareTables.getTables(size);
+
+        if (pieceType == PieceType.KING) kingCounts[player.ordinal()] += delta;
+        else ordinaryCounts[player.ordinal()] += delta;
+
+        material[player.ordinal()] += delta * PieceSquareTables.getMaterial(pieceType);
+        values[player.ordinal()] += delta * PieceSquareTables.getValue(pieceSquareTables, square, player, pieceType);
+    }
+
+    /**
+     * Get the number of {@link PieceType#ORDINARY} pieces of {@code player}.
+     *
+     * @param player Player we want to count pieces for
+     * @return Number of pieces, 0 for {@link PlayerNum#NOPLAYER}
+     */
+    public int getOrdinaryCount(PlayerNum player) {
+        return ordinaryCounts[player.ordinal()];
+    }
+
+    /**
+     * Get the number of {@link PieceType#KING} pieces of {@code player}.
+     *
+     * @param player Player we want to count kings for
+     * @return Number of kings, 0 for {@link PlayerNum#NOPLAYER}
+     */
+    public int getKingCount(PlayerNum player) {
+        return kingCounts[player.ordinal()];
+    }
+
+    /**
+     * Get the material value of all pieces of {@code player}, as counted by
+     * {@link Grid#getValue(PlayerNum, PlayerNum)}.
+     *
+     * @param player Player we want to get material for
+     * @return Material value, 0 for {@link PlayerNum#NOPLAYER}
+     */
+    public int getMaterial(PlayerNum player) {
+        return material[player.ordinal()];
     }
 
     /**
@@ -167,13 +409,38 @@ public class Grid implements Iterable<GridEntry>, Serializable {
      * @see PieceType
      */
     public void removeGridEntry(@NotNull GridEntry entry) {
-        int index = gridEntries.indexOf(entry);
+        int index = indexOfEntry(entry);
         if(index == -1) {
             throw new RuntimeException("Entry (" + entry.getX() + ", " + entry.getY() + ") not found in gridEntries");
         }
 
-        gridEntries.get(index).setPlayer(PlayerNum.NOPLAYER);
-        gridEntries.get(index).setPieceType(PieceType.UNASSIGNED);
+        // Captured pieces are removed before the capturing move is made with attemptMove,
+        // which needs movable entries from before the capture to validate the move
+        final GridEntry removed = gridEntries.get(index);
+        final PlayerNum capturer = removed.getPlayer() == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        final HashMap<GridEntry, ArrayList<Destination>> cached =
+                removed.getPlayer() != PlayerNum.NOPLAYER ? getCachedMovableEntries(capturer) : null;
+
+        setEntryState(removed, PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+
+        if (cached != null) setCachedMovableEntries(capturer, new MovableEntries(version, cached, true));
+    }
+
+    /**
+     * Put a piece on given square of {@link Grid#board}, replacing whatever was there. Meant for
+     * setting up positions that don't come from a game, e.g. by {@link com.cyberbot.checkers.game.ai.EndgameTablebaseGenerator}.
+     * The king-only move counter is left unchanged.
+     *
+     * @param square Square index, see {@link BitBoard#getSquare(int, int)}
+     * @param player Owner of the piece or {@link PlayerNum#NOPLAYER} to clear the square
+     * @param pieceType Type of the piece or {@link PieceType#UNASSIGNED} to clear the square
+     */
+    public void setPiece(int square, PlayerNum player, PieceType pieceType) {
+        if (square < 0 || square >= board.getSquareCount()) {
+            throw new IndexOutOfBoundsException("Square " + square + " out of bounds for grid with size " + size);
+        }
+
+        setEntryState(getEntryBySquare(square), player, pieceType);
     }
 
     /**
@@ -202,6 +469,58 @@ public class Grid implements Iterable<GridEntry>, Serializable {
         return null;
     }
 
+    /**
+     * Get {@link Destination} of the move at {@code index} of moves generated for {@code player}
+     * by {@link Grid#generateMoves(PlayerNum, MoveList)}. Unlike {@link Grid#getDestination(GridEntry, GridEntry)},
+     * it tells apart capture paths between the same entries, which may capture different pieces.
+     *
+     * @param player Player the moves were generated for
+     * @param index Index of the move
+     * @return {@link Destination} from {@link Grid#getMovableEntries(PlayerNum)} or null when there
+     * is no move at {@code index}
+     */
+    @Nullable
+    public Destination getDestination(PlayerNum player, int index) {
+        final MoveList moves = new MoveList();
+        generateMoves(player, moves);
+        if (index < 0 || index >= moves.size()) return null;
+
+        // Destinations of a source are listed in the order of generation
+        final int src = MoveList.getSource(moves.get(index));
+        int position = 0;
+        for (int i = 0; i < index; ++i) {
+            if (MoveList.getSource(moves.get(i)) == src) ++position;
+        }
+
+        return getMovableEntries(player).get(getEntryBySquare(src)).get(position);
+    }
+
+    /**
+     * Get {@link Destination} equivalent to {@code destination} of another grid, e.g. one restored
+     * from a {@link Position}, made of entries of this grid with the same coordinates. Only the
+     * entries of this grid are read, never their state, so it can be called from any thread.
+     *
+     * @param destination {@link Destination} to be translated. Cannot be null
+     * @return {@link Destination} with entries of this grid
+     */
+    @NotNull
+    public Destination translateDestination(@NotNull Destination destination) {
+        final GridEntry dst = getEntryByCoords(destination.getDestinationEntry().getX(), destination.getDestinationEntry().getY());
+        if (!destination.isCapture()) return new Destination(dst);
+
+        final ArrayList<GridEntry> capturedPieces = new ArrayList<>(destination.getCapturedPieces().size());
+        for (GridEntry captured : destination.getCapturedPieces()) {
+            capturedPieces.add(getEntryByCoords(captured.getX(), captured.getY()));
+        }
+
+        final ArrayList<GridEntry> intermediateSteps = new ArrayList<>(destination.getIntermediateSteps().size());
+        for (GridEntry step : destination.getIntermediateSteps()) {
+            intermediateSteps.add(getEntryByCoords(step.getX(), step.getY()));
+        }
+
+        return new Destination(dst, capturedPieces, intermediateSteps);
+    }
+
     /**
      * Tells if a move is allowed from {@code src} to {@code dst}.
      *
@@ -212,9 +531,7 @@ public class Grid implements Iterable<GridEntry>, Serializable {
     public boolean destinationAllowed(@NotNull GridEntry src, @NotNull GridEntry dst) {
         if(src == dst) return true;
 
-        getMovableEntries(src.getPlayer());
-
-        ArrayList<Destination> destinations = movableEntriesCache.get(src);
+        ArrayList<Destination> destinations = getMovableEntries(src.getPlayer()).get(src);
         if (destinations == null) return false;
 
         for (Destination destination : destinations) {
@@ -241,8 +558,7 @@ public class Grid implements Iterable<GridEntry>, Serializable {
      * @param dst Destination entry. Cannot be null
      * @param deleteCapturedPieces Specify if captured pieces should be deleted from the board or not
      * @param checkIfMoveAllowed Perform additional check if move from {@code src} to {@code dst} is allowed
-     * @return {@code true} is move was executed or {@code false} if it's not allowed or {@link Grid#movableEntriesCache}
-     * is null when invoked with {@code checkIfMoveAllowed} set to {@code false}
+     * @return {@code true} is move was executed or {@code false} if it's not allowed
      *
      * @see Grid#promotionAvailable(GridEntry, GridEntry)
      * @see Grid#isGameOver()
@@ -250,8 +566,6 @@ public class Grid implements Iterable<GridEntry>, Serializable {
     private boolean attemptMove(@NotNull GridEntry src, @NotNull GridEntry dst, boolean deleteCapturedPieces, boolean checkIfMoveAllowed) {
         if(checkIfMoveAllowed && (src == dst || !destinationAllowed(src, dst))) return false;
 
-        if(checkIfMoveAllowed && movableEntriesCache == null) return false;
-
         Destination destination = getDestination(src, dst);
         if(destination != null) {
             if(deleteCapturedPieces) {
@@ -268,22 +582,18 @@ public class Grid implements Iterable<GridEntry>, Serializable {
             else moveCount = 0;  // Clear counter when an ordinary piece moved or there was a capture
         }
 
-        final int srcIdx = gridEntries.indexOf(src);
-        final int dstIdx = gridEntries.indexOf(dst);
+        final int srcIdx = indexOfEntry(src);
+        final int dstIdx = indexOfEntry(dst);
 
         if (srcIdx == -1 || dstIdx == -1) {
             throw new RuntimeException("GridEntry destination or source not part of the Grid");
         }
 
-        gridEntries.get(dstIdx).setPlayer(src.getPlayer());
-        gridEntries.get(dstIdx).setPieceType(
+        setEntryState(gridEntries.get(dstIdx), src.getPlayer(),
                 promotionAvailable(src, dst) ? PieceType.KING : src.getPieceType()
         );
 
-        gridEntries.get(srcIdx).setPlayer(PlayerNum.NOPLAYER);
-        gridEntries.get(srcIdx).setPieceType(PieceType.UNASSIGNED);
-
-        movableEntriesCache = null;
+        setEntryState(gridEntries.get(srcIdx), PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
 
         GameEnd gameEnd = isGameOver();
         if(gameEnd != null) {
@@ -312,313 +622,209 @@ public class Grid implements Iterable<GridEntry>, Serializable {
     }
 
     /**
-     * Get all adjacent entries to {@code entry}. Only legal entries are considered adjacent.
+     * Generate all legal moves of given {@code player} into {@code moves}, respecting the
+     * {@link Grid#mandatoryCapture} preference. This is the allocation-free counterpart of
+     * {@link Grid#getMovableEntries(PlayerNum)}, meant for the AI - once {@code moves} has grown
+     * to the needed size, no objects are created. Moves can be made with
+     * {@link Grid#makeMove(MoveList, int, MoveUndo)}.
      *
-     * @param entry {@link GridEntry}, for which we want to get adjacent entries
-     * @return {@link ArrayList} with all adjacent entries to given {@code entry}
-     */
-    @NotNull
-    private ArrayList<GridEntry> getAdjacentEntries(@NotNull GridEntry entry) {
-        ArrayList<GridEntry> adjacentEntries = new ArrayList<>();
-
-        // Short names for code readability
-        final int x = entry.getX();
-        final int y = entry.getY();
-
-        // Bottom corner
-        if (x == 0 && y == size - 1) {
-            adjacentEntries.add(getEntryByCoords(1, size - 2));
-        }
-        // Upper corner
-        else if (y == 0 && x == size - 1) {
-            adjacentEntries.add(getEntryByCoords(size - 2, 1));
-        }
-        // Upper edge
-        else if (x == 0) {
-            adjacentEntries.add(getEntryByCoords(1, y - 1));
-            adjacentEntries.add(getEntryByCoords(1, y + 1));
-        }
-        // Left edge
-        else if (y == 0) {
-            adjacentEntries.add(getEntryByCoords(x - 1, 1));
-            adjacentEntries.add(getEntryByCoords(x + 1, 1));
-        }
-        // Bottom edge
-        else if (x == size - 1) {
-            adjacentEntries.add(getEntryByCoords(x - 1, y - 1));
-            adjacentEntries.add(getEntryByCoords(x - 1, y + 1));
-        }
-        // Right edge
-        else if (y == size - 1) {
-            adjacentEntries.add(getEntryByCoords(x - 1, y - 1));
-            adjacentEntries.add(getEntryByCoords(x + 1, y - 1));
-        }
-        // Mid entries
-        else {
-            adjacentEntries.add(getEntryByCoords(x - 1, y - 1));
-            adjacentEntries.add(getEntryByCoords(x - 1, y + 1));
-            adjacentEntries.add(getEntryByCoords(x + 1, y - 1));
-            adjacentEntries.add(getEntryByCoords(x + 1, y + 1));
-        }
-
-        return adjacentEntries;
-    }
-
-    /**
-     * Get all allowed moves for specified {@code entry}. Moves are calculated differently
-     * based on {@link PieceType}.
-     *
-     * If {@code entry} is {@link PieceType#UNASSIGNED}, then a {@link IllegalArgumentException}
+     * {@code player} should not be {@link PlayerNum#NOPLAYER} - otherwise {@link IllegalArgumentException}
      * is thrown.
      *
-     * @param entry {@link GridEntry} we want to get moves for
-     * @return {@link ArrayList} of allowed moves
+     * @param player Player we want to generate moves for
+     * @param moves Buffer for the moves. Its previous content is removed. Cannot be null
+     * @return Number of generated moves
      *
-     * @see Grid#calculateOrdinaryPieceMoves(GridEntry)
-     * @see Grid#calculateKingMoves(GridEntry)
+     * @see MoveList
      */
-    @NotNull
-    private ArrayList<GridEntry> getAllowedMoves(@NotNull GridEntry entry) {
-        if(entry.getPieceType() == PieceType.UNASSIGNED) {
-            throw new IllegalArgumentException("Attempt to get allowed moves for UNASSIGNED piece type");
+    public int generateMoves(PlayerNum player, @NotNull MoveList moves) {
+        if(player == PlayerNum.NOPLAYER) {
+            throw new IllegalArgumentException("Cannot generate moves for NOPLAYER");
         }
 
-        ArrayList<GridEntry> allowedMoves = new ArrayList<>();
+        moves.clear();
+        if (mandatoryCapture) moves.retainLongestCapturesOnly();
 
-        if (entry.getPieceType() == PieceType.ORDINARY) {
-            allowedMoves = calculateOrdinaryPieceMoves(entry);
-        }
-        else if(entry.getPieceType() == PieceType.KING) {
-            allowedMoves = calculateKingMoves(entry);
+        // Check for captures first
+        for (int s = board.nextPiece(player, 0); s != -1; s = board.nextPiece(player, s + 1)) {
+            if (board.isKing(s)) generateKingCaptures(moves, s, s, player);
+            else generateOrdinaryPieceCaptures(moves, s, s, player);
         }
 
-        return allowedMoves;
-    }
+        if (mandatoryCapture && !moves.isEmpty()) {
+            return moves.size();
+        }
 
-    /**
-     * Calculate allowed moves for {@link PieceType#ORDINARY}. {@link Grid#canMoveBackwards}
-     * preference is taken into account during calculations.
-     *
-     * If supplied {@code entry} has different {@code pieceType} than {@link PieceType#ORDINARY},
-     * a {@link IllegalArgumentException} is thrown.
-     *
-     * @param entry {@link GridEntry} we want to calculate moves for
-     * @return {@link ArrayList} of calculated moves
-     */
-    @NotNull
-    private ArrayList<GridEntry> calculateOrdinaryPieceMoves(@NotNull GridEntry entry) {
-        if(entry.getPieceType() != PieceType.ORDINARY) {
-            throw new IllegalArgumentException("Attempt to calculate ordinary piece moves for non-ordinary piece");
-        }
-
-        ArrayList<GridEntry> allowedMoves = new ArrayList<>();
-        for (GridEntry adjEntry : getAdjacentEntries(entry)) {
-            if (adjEntry.getPlayer() == PlayerNum.NOPLAYER) {
-                if (canMoveBackwards
-                        || (entry.getPlayer() == PlayerNum.FIRST && entry.getY() < adjEntry.getY())
-                        || (entry.getPlayer() == PlayerNum.SECOND && entry.getY() > adjEntry.getY())) {
-                    allowedMoves.add(adjEntry);
-                }
-            }
+        for (int s = board.nextPiece(player, 0); s != -1; s = board.nextPiece(player, s + 1)) {
+            if (board.isKing(s)) generateKingMoves(moves, s);
+            else generateOrdinaryPieceMoves(moves, s, player);
         }
 
-        return allowedMoves;
+        return moves.size();
     }
 
     /**
-     * Calculate allowed moves for {@link PieceType#KING}. {@link Grid#flyingKing} preference
-     * is taken into account during calculations.
-     *
-     * If supplied {@code entry} has different {@code pieceType} than {@link PieceType#KING},
-     * a {@link IllegalArgumentException} is thrown.
+     * Generate moves without captures for {@link PieceType#ORDINARY} at {@code src}.
+     * {@link Grid#canMoveBackwards} preference is taken into account during calculations.
      *
-     * @param entry {@link GridEntry} we want to calculate moves for
-     * @return {@link ArrayList} of calculated moves
+     * @param moves Buffer for the moves
+     * @param src Square of the piece
+     * @param player Owner of the piece
      */
-    @NotNull
-    private ArrayList<GridEntry> calculateKingMoves(@NotNull GridEntry entry) {
-        if(entry.getPieceType() != PieceType.KING) {
-            throw new IllegalArgumentException("Attempt to calculate king moves for non-king");
-        }
-
-        ArrayList<GridEntry> allowedMoves = new ArrayList<>();
-        for(GridEntry adjEntry: getAdjacentEntries(entry)) {
-            if(adjEntry.getPlayer() == PlayerNum.NOPLAYER) {
-                allowedMoves.add(adjEntry);
-
-                // Move diagonally in direction implied by ajdEntry to discover more free entries
-                if(flyingKing) {
-                    final int directionX = adjEntry.getX() - entry.getX();
-                    final int directionY = adjEntry.getY() - entry.getY();
-
-                    int nextX = adjEntry.getX() + directionX;
-                    int nextY = adjEntry.getY() + directionY;
-                    while(coordsValid(nextX, nextY)) {
-                        GridEntry nextEntry = getEntryByCoords(nextX, nextY);
-                        if(nextEntry.getPlayer() == PlayerNum.NOPLAYER) {
-                            allowedMoves.add(nextEntry);
-                            nextX += directionX;
-                            nextY += directionY;
-                        } else break;
-                    }
-                }
+    private void generateOrdinaryPieceMoves(@NotNull MoveList moves, int src, PlayerNum player) {
+        final BoardGeometry geometry = getGeometry();
+
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+            if (!canMoveBackwards && !isForward(player, d)) continue;
+
+            final int dst = geometry.getNeighbor(src, d);
+            if (dst != -1 && board.isEmpty(dst)) {
+                moves.add(src, dst, isPromotionSquare(player, dst));
             }
         }
-
-        return allowedMoves;
     }
 
     /**
-     * Get all allowed captures for specified {@code entry}. Captures are calculated differently
-     * based on {@link PieceType}
+     * Generate moves without captures for {@link PieceType#KING} at {@code src}.
+     * {@link Grid#flyingKing} preference is taken into account during calculations.
      *
-     * @param entry {@link GridEntry} we want to get captures for
-     * @return {@link ArrayList} of allowed captures
-     *
-     * @see Grid#calculateOrdinaryPieceCaptures(CaptureChain, PlayerNum)
-     * @see Grid#calculateKingCaptures(CaptureChain, PlayerNum)
+     * @param moves Buffer for the moves
+     * @param src Square of the piece
      */
-    @NotNull
-    private ArrayList<CaptureChain> getAllowedCaptures(@NotNull GridEntry entry) {
-        CaptureChain root = new CaptureChain(entry);
+    private void generateKingMoves(@NotNull MoveList moves, int src) {
+        final BoardGeometry geometry = getGeometry();
 
-        if (entry.getPieceType() == PieceType.ORDINARY) {
-            calculateOrdinaryPieceCaptures(root, entry.getPlayer());
-        }
-        else if(entry.getPieceType() == PieceType.KING) {
-            calculateKingCaptures(root, entry.getPlayer());
-        }
-
-        ArrayList<CaptureChain> allowedCaptures;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+            final int end = geometry.getRayEnd(src, d);
 
-        if (mandatoryCapture) allowedCaptures = root.getLongestCaptures();
-        else allowedCaptures = root.getAllCaptures();
+            // Move diagonally to discover all free entries in the direction
+            for (int i = geometry.getRayStart(src, d); i < end; ++i) {
+                final int dst = geometry.getRaySquare(i);
+                if (!board.isEmpty(dst)) break;
 
-        return allowedCaptures;
+                moves.add(src, dst, false);
+                if (!flyingKing) break;
+            }
+        }
     }
 
     /**
-     * Calculate allowed captures for {@link PieceType#ORDINARY}. {@link Grid#canCaptureBackwards}
-     * preference is taken into account during calculations.
-     *
-     * Method doesn't return any value - calculations are performed recursively and results are
-     * stored in {@code lastCapture} parameter.
+     * Generate captures for {@link PieceType#ORDINARY} that started at {@code src} and has got to
+     * {@code from} after the capture steps already pushed to {@code moves}.
+     * {@link Grid#canCaptureBackwards} preference is taken into account during calculations.
      *
-     * There's no checks if the method was invoked for {@link PieceType#ORDINARY} because of
-     * recursive nature of it, so the caller should be sure to call it correctly. Also, the caller
-     * needs to be sure, that {@code player} is not set to {@link PlayerNum#NOPLAYER}.
+     * Captured pieces stay on the board until the move is made, so they can't be jumped over twice.
+     * Unless captures are mandatory, every step ends a capture that can be made. Otherwise only
+     * captures that can't be continued are generated.
      *
-     * @param lastCapture {@link CaptureChain} object representing last capture that has taken place.
-     *                                        It should have been set to root capture when first invoked
-     * @param player {@link PlayerNum} representing the player who is capturing
-     *
-     * @see CaptureChain
+     * @param moves Buffer for the moves
+     * @param src Square the capture started at
+     * @param from Square the piece is at after previous capture steps
+     * @param player Owner of the piece
+     * @return {@code true} if there's any capture from {@code from}, {@code false} otherwise
      */
-    private void calculateOrdinaryPieceCaptures(@NotNull CaptureChain lastCapture, final PlayerNum player) {
-        GridEntry lastLocation = lastCapture.getLocationAfterCapture();
+    private boolean generateOrdinaryPieceCaptures(@NotNull MoveList moves, int src, int from, final PlayerNum player) {
+        final BoardGeometry geometry = getGeometry();
+        boolean found = false;
 
-        for (GridEntry adjEntry : getAdjacentEntries(lastLocation)) {
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
             // Check if can capture backwards or adjacent piece is ahead
-            if (canCaptureBackwards
-                    || (player == PlayerNum.FIRST && lastLocation.getY() < adjEntry.getY())
-                    || (player == PlayerNum.SECOND && lastLocation.getY() > adjEntry.getY())) {
-
-                // Check if adjacent piece belongs to other player and wasn't captured yet
-                if (adjEntry.getPlayer() != PlayerNum.NOPLAYER
-                        && adjEntry.getPlayer() != player
-                        && !lastCapture.checkIfEntryCaptured(adjEntry)) {
-
-                    final int entryAfterX = adjEntry.getX() + (adjEntry.getX() - lastLocation.getX());
-                    final int entryAfterY = adjEntry.getY() + (adjEntry.getY() - lastLocation.getY());
-
-                    // Check if entry after captured piece is on the Grid
-                    if (coordsValid(entryAfterX, entryAfterY)) {
-                        GridEntry entryAfter = getEntryByCoords(entryAfterX, entryAfterY);
-                        // Check if entry after captured piece belongs to nobody
-                        if (entryAfter.getPlayer() == PlayerNum.NOPLAYER) {
-                            CaptureChain nextCapture = new CaptureChain(entryAfter, adjEntry, lastCapture);
-                            lastCapture.addNextCapture(nextCapture);
-                            calculateOrdinaryPieceCaptures(nextCapture, player);
-                        }
-                    }
-                }
+            if (!canCaptureBackwards && !isForward(player, d)) continue;
+
+            // Check if adjacent piece belongs to other player and wasn't captured yet
+            final int captured = geometry.getNeighbor(from, d);
+            if (captured == -1 || !isEnemy(captured, player) || moves.isCaptured(captured)) continue;
+
+            // Check if entry after captured piece is on the board and belongs to nobody
+            final int landing = geometry.getNeighbor(captured, d);
+            if (landing == -1 || !board.isEmpty(landing)) continue;
+
+            found = true;
+            moves.pushStep(captured, landing);
+            final boolean continued = generateOrdinaryPieceCaptures(moves, src, landing, player);
+            if (!mandatoryCapture || !continued) {
+                moves.addCapture(src, isPromotionSquare(player, landing));
             }
+            moves.popStep();
         }
+
+        return found;
     }
 
     /**
-     * Calculate allowed captures for {@link PieceType#KING}. {@link Grid#flyingKing} preference
-     * is taken into account during calculations.
-     *
-     * Method doesn't return any value - calculations are preformed recursively and results are
-     * stored in {@code lastCapture} parameters.
-     *
-     * There's no checks if the method was invoked for {@link PieceType#KING} because of recursive
-     * nature of it, so the caller should be sure to call it correctly. Also, the caller needs
-     * to be sure, that {@code player} is not set to {@link PlayerNum#NOPLAYER}.
+     * Generate captures for {@link PieceType#KING} that started at {@code src} and has got to
+     * {@code from} after the capture steps already pushed to {@code moves}. {@link Grid#flyingKing}
+     * preference is taken into account during calculations. See
+     * {@link Grid#generateOrdinaryPieceCaptures(MoveList, int, int, PlayerNum)} for details.
      *
-     * @param lastCapture {@link CaptureChain} object representing last capture that has taken place.
-     *                                        It should have been set to root capture when first invoked
-     * @param player {@link PlayerNum} representing the player who is capturing
-     *
-     * @see CaptureChain
+     * @param moves Buffer for the moves
+     * @param src Square the capture started at
+     * @param from Square the piece is at after previous capture steps
+     * @param player Owner of the piece
+     * @return {@code true} if there's any capture from {@code from}, {@code false} otherwise
      */
-    private void calculateKingCaptures(@NotNull CaptureChain lastCapture, final PlayerNum player) {
-        GridEntry lastLocation = lastCapture.getLocationAfterCapture();
-
-        for(GridEntry adjEntry: getAdjacentEntries(lastLocation)) {
-            final int directionX = adjEntry.getX() - lastLocation.getX();
-            final int directionY = adjEntry.getY() - lastLocation.getY();
+    private boolean generateKingCaptures(@NotNull MoveList moves, int src, int from, final PlayerNum player) {
+        final BoardGeometry geometry = getGeometry();
+        boolean found = false;
 
-            GridEntry enemyEntry = null;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+            final int end = geometry.getRayEnd(from, d);
+            int i = geometry.getRayStart(from, d);
 
             // Move diagonally to find enemy piece in range
-            if(adjEntry.getPlayer() == PlayerNum.NOPLAYER && flyingKing) {
-                int nextX = adjEntry.getX();
-                int nextY = adjEntry.getY();
-
-                while(coordsValid((nextX += directionX), (nextY += directionY))) {
-                    GridEntry entryAfter = getEntryByCoords(nextX, nextY);
-
-                    if(entryAfter.getPlayer() != PlayerNum.NOPLAYER) {
-                        if(entryAfter.getPlayer() != player) enemyEntry = entryAfter;
-                        break;
-                    }
-                }
-            }
-            // Enemy piece is adjacent
-            else if(adjEntry.getPlayer() != PlayerNum.NOPLAYER && adjEntry.getPlayer() != player) {
-                enemyEntry = adjEntry;
+            if (flyingKing) {
+                while (i < end && board.isEmpty(geometry.getRaySquare(i))) ++i;
             }
 
             // Skip if enemy piece already captured or there's no one in range
-            if(enemyEntry == null || lastCapture.checkIfEntryCaptured(enemyEntry)) continue;
+            if (i == end) continue;
+            final int captured = geometry.getRaySquare(i);
+            if (!isEnemy(captured, player) || moves.isCaptured(captured)) continue;
 
             // Check for free spaces after enemy piece
-            int nextX = enemyEntry.getX();
-            int nextY = enemyEntry.getY();
-
-            if(flyingKing) {
-                while(coordsValid((nextX += directionX), (nextY += directionY))) {
-                    GridEntry entryAfter = getEntryByCoords(nextX, nextY);
-                    if(entryAfter.getPlayer() == PlayerNum.NOPLAYER) {
-                        CaptureChain nextCapture = new CaptureChain(entryAfter, enemyEntry, lastCapture);
-                        lastCapture.addNextCapture(nextCapture);
-                        calculateKingCaptures(nextCapture, player);
-                    } else break;
-                }
-            }
-            else {  // Necessary duplicate code to avoid checks in previous while loop
-                if(coordsValid((nextX += directionX), (nextY += directionY))) {
-                    GridEntry entryAfter = getEntryByCoords(nextX, nextY);
-                    if(entryAfter.getPlayer() == PlayerNum.NOPLAYER) {
-                        CaptureChain nextCapture = new CaptureChain(entryAfter, enemyEntry, lastCapture);
-                        lastCapture.addNextCapture(nextCapture);
-                        calculateKingCaptures(nextCapture, player);
-                    }
+            while (++i < end) {
+                final int landing = geometry.getRaySquare(i);
+                if (!board.isEmpty(landing)) break;
+
+                found = true;
+                moves.pushStep(captured, landing);
+                final boolean continued = generateKingCaptures(moves, src, landing, player);
+                if (!mandatoryCapture || !continued) {
+                    moves.addCapture(src, false);
                 }
+                moves.popStep();
+
+                if (!flyingKing) break;
             }
         }
+
+        return found;
+    }
+
+    /**
+     * Get lookup tables of the board, shared with other grids of the same size.
+     * They're not serialized, so they are looked up again after deserialization.
+     */
+    @NotNull
+    private BoardGeometry getGeometry() {
+        if (geometry == null) geometry = BoardGeometry.forSize(size);
+        return geometry;
+    }
+
+    @Contract(pure = true)
+    private static boolean isForward(PlayerNum player, int direction) {
+        return (player == PlayerNum.FIRST) == BoardGeometry.isTowardsHigherY(direction);
+    }
+
+    private boolean isEnemy(int square, PlayerNum player) {
+        return !board.isEmpty(square) && !board.isOccupiedBy(square, player);
+    }
+
+    /**
+     * Tell if {@link PieceType#ORDINARY} of {@code player} gets promoted when it reaches {@code square}.
+     */
+    private boolean isPromotionSquare(PlayerNum player, int square) {
+        return getGeometry().getSquareY(square) == (player == PlayerNum.FIRST ? size - 1 : 0);
     }
 
     /**
@@ -651,26 +857,15 @@ public class Grid implements Iterable<GridEntry>, Serializable {
      */
     @Nullable
     public GameEnd isGameOver() {
-        if(moveCount == 25) {
+        if(moveCount == KING_ONLY_MOVE_LIMIT) {
             return new GameEnd(PlayerNum.NOPLAYER, GameEndReason.DRAW_TOO_MANY_KING_ONLY_MOVES);
         }
 
-        int firstPlayerPieces = 0;
-        int firstPlayerKings = 0;
+        final int firstPlayerKings = getKingCount(PlayerNum.FIRST);
+        final int firstPlayerPieces = getOrdinaryCount(PlayerNum.FIRST);
 
-        int secondPlayerPieces = 0;
-        int secondPlayerKings = 0;
-
-        for(GridEntry entry: gridEntries) {
-            if(entry.getPlayer() == PlayerNum.FIRST) {
-                if(entry.getPieceType() == PieceType.KING) ++firstPlayerKings;
-                else ++firstPlayerPieces;
-            }
-            else if(entry.getPlayer() == PlayerNum.SECOND) {
-                if(entry.getPieceType() == PieceType.KING) ++secondPlayerKings;
-                else ++secondPlayerPieces;
-            }
-        }
+        final int secondPlayerKings = getKingCount(PlayerNum.SECOND);
+        final int secondPlayerPieces = getOrdinaryCount(PlayerNum.SECOND);
 
         if(secondPlayerKings + secondPlayerPieces == 0) {
             return new GameEnd(PlayerNum.FIRST, GameEndReason.WIN_OPPONENT_NO_PIECES_REMAINING);
@@ -684,114 +879,185 @@ public class Grid implements Iterable<GridEntry>, Serializable {
             return new GameEnd(PlayerNum.NOPLAYER, GameEndReason.DRAW_KING_VS_KING);
         }
 
-        final int firstPlayerMovablePieces = getMovableEntries(PlayerNum.FIRST, false).size();
-        final int secondPlayerMovablePieces = getMovableEntries(PlayerNum.SECOND, false).size();
+        final boolean firstPlayerCanMove = hasAnyLegalMove(PlayerNum.FIRST);
+        final boolean secondPlayerCanMove = hasAnyLegalMove(PlayerNum.SECOND);
 
-        if(firstPlayerMovablePieces == 0 && secondPlayerMovablePieces == 0) {
+        if(!firstPlayerCanMove && !secondPlayerCanMove) {
             return new GameEnd(PlayerNum.NOPLAYER, GameEndReason.DRAW_NO_MOVABLE_PIECES_REMAINING);
         }
 
-        if(firstPlayerMovablePieces == 0) {
+        if(!firstPlayerCanMove) {
             return new GameEnd(PlayerNum.SECOND, GameEndReason.WIN_OPPONENT_NO_MOVABLE_PIECES_REMAINING);
         }
 
-        if(secondPlayerMovablePieces == 0) {
+        if(!secondPlayerCanMove) {
             return new GameEnd(PlayerNum.FIRST, GameEndReason.WIN_OPPONENT_NO_MOVABLE_PIECES_REMAINING);
         }
 
-        movableEntriesCache = null;
-
         return null;
     }
 
+    /**
+     * Tell if {@code player} can make any move. The check stops at the first piece that can move
+     * or capture, without generating whole capture sequences, and uses the movable entries cache
+     * when it holds moves of {@code player}.
+     *
+     * {@code player} should not be {@link PlayerNum#NOPLAYER} - otherwise {@link IllegalArgumentException}
+     * is thrown.
+     *
+     * @param player Player we want to check
+     * @return {@code true} if {@code player} has at least one legal move, {@code false} otherwise
+     */
+    public boolean hasAnyLegalMove(PlayerNum player) {
+        if(player == PlayerNum.NOPLAYER) {
+            throw new IllegalArgumentException("Cannot check moves of NOPLAYER");
+        }
+
+        final MovableEntries cache = player == PlayerNum.FIRST ? firstPlayerMovableEntries : secondPlayerMovableEntries;
+        if(cache != null && cache.version == version && !cache.movePending) return !cache.entries.isEmpty();
+
+        for (int s = board.nextPiece(player, 0); s != -1; s = board.nextPiece(player, s + 1)) {
+            if (board.isKing(s) ? kingCanMove(s, player) : ordinaryPieceCanMove(s, player)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Tell if {@link PieceType#ORDINARY} at {@code src} can make a move or start a capture.
+     */
+    private boolean ordinaryPieceCanMove(int src, PlayerNum player) {
+        final BoardGeometry geometry = getGeometry();
+
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+            final int next = geometry.getNeighbor(src, d);
+            if (next == -1) continue;
+
+            if (board.isEmpty(next)) {
+                if (canMoveBackwards || isForward(player, d)) return true;
+            } else if (isEnemy(next, player) && (canCaptureBackwards || isForward(player, d))) {
+                final int landing = geometry.getNeighbor(next, d);
+                if (landing != -1 && board.isEmpty(landing)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Tell if {@link PieceType#KING} at {@code src} can make a move or start a capture. A king
+     * that can't step to an adjacent square can only capture the adjacent piece, whether it's
+     * flying or not.
+     */
+    private boolean kingCanMove(int src, PlayerNum player) {
+        final BoardGeometry geometry = getGeometry();
+
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+            final int start = geometry.getRayStart(src, d);
+            final int end = geometry.getRayEnd(src, d);
+            if (start == end) continue;
+
+            final int next = geometry.getRaySquare(start);
+            if (board.isEmpty(next)) return true;
+
+            if (isEnemy(next, player) && start + 1 < end && board.isEmpty(geometry.getRaySquare(start + 1))) return true;
+        }
+
+        return false;
+    }
+
     /**
      * Get all movable entries for given {@code player}. This includes all moves and captures,
      * respecting the {@link Grid#mandatoryCapture} preference.
      *
-     * Results are saved in {@link Grid#movableEntriesCache} because of high calling rate
-     * and quite complex operations withing the method. The cache should be cleared after
-     * {@link Grid#attemptMove(GridEntry, GridEntry)} is successfully called ({@code true} returned).
+     * Results are cached for each player because of high calling rate and quite complex
+     * operations withing the method. Cached results are tagged with {@link Grid#version} of
+     * the position, so they're invalidated by any change of the board without clearing them
+     * by hand. Cached maps are never modified, so they can be read from another thread, e.g.
+     * for rendering, while this thread computes a new result. Returned maps must not be modified.
      *
      * {@code player} should not be {@link PlayerNum#NOPLAYER} - otherwise {@link IllegalArgumentException}
      * is thrown.
      *
      * @param player Player we want to get movable entries for
-     * @param useCache Whether to use {@link Grid#movableEntriesCache} to restore/save results
+     * @param useCache Whether to use the cache to restore/save results
      * @return {@link HashMap}, where {@link GridEntry} is the key and represents source of the move
      * and {@link ArrayList} of {@link Destination} that represents all possible destinations for the
      * source entry
      */
     @NotNull
-    private HashMap<GridEntry, ArrayList<Destination>> getMovableEntries(PlayerNum player, boolean useCache) {
+    HashMap<GridEntry, ArrayList<Destination>> getMovableEntries(PlayerNum player, boolean useCache) {
         if(player == PlayerNum.NOPLAYER) {
             throw new IllegalArgumentException("Cannot get movable entries for NOPLAYER");
         }
 
-        if(useCache && movableEntriesCache != null) return movableEntriesCache;
+        if(useCache) {
+            final HashMap<GridEntry, ArrayList<Destination>> cached = getCachedMovableEntries(player);
+            if(cached != null) return cached;
+        }
 
         HashMap<GridEntry, ArrayList<Destination>> movableEntries = new HashMap<>();
-        HashMap<GridEntry, ArrayList<CaptureChain>> possibleCaptures = new HashMap<>();
-        int longestCaptureLength = 1;
+        final MoveList moves = new MoveList();
+        generateMoves(player, moves);
 
-        // Check for captures first
-        for (GridEntry entry : gridEntries) {
-            if (entry.getPlayer() == player) {
-                ArrayList<CaptureChain> allowedCaptures = getAllowedCaptures(entry);
-                if (!allowedCaptures.isEmpty()) {
-                    possibleCaptures.put(entry, getAllowedCaptures(entry));
-                    for (CaptureChain capture : allowedCaptures) {
-                        if (capture.getCaptureLength() > longestCaptureLength) {
-                            longestCaptureLength = capture.getCaptureLength();
-                        }
-                    }
-                }
+        for (int i = 0; i < moves.size(); ++i) {
+            final GridEntry src = getEntryBySquare(MoveList.getSource(moves.get(i)));
+
+            ArrayList<Destination> destinations = movableEntries.get(src);
+            if (destinations == null) {
+                destinations = new ArrayList<>();
+                movableEntries.put(src, destinations);
             }
+
+            destinations.add(createDestination(moves, i));
         }
 
-        // Add moves if captures aren't mandatory
-        if (!mandatoryCapture || possibleCaptures.isEmpty()) {
-            for (GridEntry entry : gridEntries) {
-                if (entry.getPlayer() == player) {
-                    ArrayList<GridEntry> allowedMoves = getAllowedMoves(entry);
-                    if (!allowedMoves.isEmpty()) {
-                        ArrayList<Destination> destinations = new ArrayList<>();
-                        for (GridEntry destination : allowedMoves) {
-                            destinations.add(new Destination(destination));
-                        }
+        if(useCache) setCachedMovableEntries(player, new MovableEntries(version, movableEntries, false));
 
-                        movableEntries.put(entry, destinations);
-                    }
-                }
-            }
-        }
+        return movableEntries;
+    }
 
-        // Add captures
-        if (!possibleCaptures.isEmpty()) {
-            for (Map.Entry<GridEntry, ArrayList<CaptureChain>> possibleCapture : possibleCaptures.entrySet()) {
-                ArrayList<Destination> destinations = new ArrayList<>();
-                for (CaptureChain capture : possibleCapture.getValue()) {
-                    if (!mandatoryCapture || capture.getCaptureLength() == longestCaptureLength) {
-                        destinations.add(new Destination(capture));
-                    }
-                }
+    /**
+     * Get movable entries of {@code player} cached for the current position.
+     *
+     * @param player Player we want to get movable entries for
+     * @return Cached movable entries or null if there are none for the current {@link Grid#version}
+     */
+    @Nullable
+    private HashMap<GridEntry, ArrayList<Destination>> getCachedMovableEntries(PlayerNum player) {
+        final MovableEntries cache = player == PlayerNum.FIRST ? firstPlayerMovableEntries : secondPlayerMovableEntries;
+        return cache != null && cache.version == version ? cache.entries : null;
+    }
 
-                if (!destinations.isEmpty()) {
-                    if (!movableEntries.containsKey(possibleCapture.getKey())) {
-                        movableEntries.put(possibleCapture.getKey(), destinations);
-                    } else {
-                        ArrayList<Destination> otherDestinations = movableEntries.get(possibleCapture.getKey());
-                        if(otherDestinations == null) {
-                            throw new RuntimeException("This should not happen. Contact developers on GitHub if it did");
-                        }
-                        otherDestinations.addAll(destinations);
-                    }
-                }
+    private void setCachedMovableEntries(PlayerNum player, @NotNull MovableEntries cache) {
+        if(player == PlayerNum.FIRST) firstPlayerMovableEntries = cache;
+        else secondPlayerMovableEntries = cache;
+    }
+
+    /**
+     * Create {@link Destination} describing the move at {@code index} of {@code moves}.
+     *
+     * @param moves Moves generated by {@link Grid#generateMoves(PlayerNum, MoveList)}
+     * @param index Index of the move
+     * @return {@link Destination} with entries of this grid
+     */
+    @NotNull
+    private Destination createDestination(@NotNull MoveList moves, int index) {
+        final long move = moves.get(index);
+        final GridEntry dst = getEntryBySquare(MoveList.getDestination(move));
+        final int captureCount = MoveList.getCaptureCount(move);
+        if (captureCount == 0) return new Destination(dst);
+
+        final ArrayList<GridEntry> capturedPieces = new ArrayList<>(captureCount);
+        final ArrayList<GridEntry> intermediateSteps = new ArrayList<>(captureCount - 1);
+        for (int step = 0; step < captureCount; ++step) {
+            capturedPieces.add(getEntryBySquare(moves.getCapturedSquare(index, step)));
+            if (step < captureCount - 1) {
+                intermediateSteps.add(getEntryBySquare(moves.getLandingSquare(index, step)));
             }
         }
 
-        if(useCache) movableEntriesCache = movableEntries;
-
-        return movableEntries;
+        return new Destination(dst, capturedPieces, intermediateSteps);
     }
 
     /**
@@ -807,78 +1073,183 @@ public class Grid implements Iterable<GridEntry>, Serializable {
         return getMovableEntries(player, true);
     }
 
+    /**
+     * Evaluate the board from the perspective of {@code playerNum}. Each piece is valued with
+     * {@link PieceSquareTables} and pieces of {@code adversaryNum} count negatively.
+     *
+     * Values of both players are kept up to date as pieces are moved, so this is a constant-time
+     * lookup that can be called at every leaf of a search.
+     *
+     * @param playerNum Player we evaluate the board for
+     * @param adversaryNum Opponent of {@code playerNum}
+     * @return Value of the board
+     */
     public int getValue(PlayerNum playerNum, PlayerNum adversaryNum) {
+        return values[playerNum.ordinal()] - values[adversaryNum.ordinal()];
+    }
 
-        int value = 0;
-        for (GridEntry gridEntry : gridEntries) {
-            if (gridEntry.getPlayer() == playerNum) {
-
-                value += 30;
+    /**
+     * Perform a move in place, without checking if it's allowed. Captured pieces are removed
+     * from the board, the piece gets promoted if possible and the king-only move counter is
+     * updated the same way {@link Grid#attemptMove(GridEntry, GridEntry)} does.
+     *
+     * Everything needed to revert the move is stored in {@code undo}, so the move can be taken
+     * back with {@link Grid#unmakeMove(MoveUndo)}. Moves have to be unmade in reverse order.
+     *
+     * {@code src} and {@code destination} may come from another {@link Grid} (e.g. a copy of
+     * this one) - only their coordinates are used.
+     *
+     * @param src Source entry. Cannot be null and must not belong to {@link PlayerNum#NOPLAYER}
+     * @param destination Destination of the move. Cannot be null
+     * @param undo Record to be filled with undo information. Cannot be null
+     *
+     * @see MoveUndo
+     */
+    public void makeMove(@NotNull GridEntry src, @NotNull Destination destination, @NotNull MoveUndo undo) {
+        final GridEntry srcEntry = getEntryByCoords(src.getX(), src.getY());
+        final GridEntry dstEntry = getEntryByCoords(
+                destination.getDestinationEntry().getX(),
+                destination.getDestinationEntry().getY()
+        );
 
-                if (gridEntry.getPieceType() == PieceType.KING) {
-                    value += 80;
-                }
+        if (srcEntry.getPlayer() == PlayerNum.NOPLAYER) {
+            throw new IllegalArgumentException("Attempt to make a move from NOPLAYER entry");
+        }
 
-                // Prioritize sides
-                value += Math.abs(gridEntry.getX() + 1 - (size / 2));
+        beginMove(getSquare(srcEntry), getSquare(dstEntry), promotionAvailable(srcEntry, dstEntry), undo);
 
-                //Prioritize forward movement
+        ArrayList<GridEntry> capturedPieces = destination.getCapturedPieces();
+        if (capturedPieces != null) {
+            for (GridEntry captured : capturedPieces) {
+                capturePiece(getSquare(getEntryByCoords(captured.getX(), captured.getY())), undo);
+            }
+        }
 
-                if (playerNum == PlayerNum.FIRST) {
-                    value += gridEntry.getY() + 1;
-                } else if (playerNum == PlayerNum.SECOND) {
-                    value += size - gridEntry.getY();
-                }
+        finishMove(undo);
+    }
 
-            } else if (gridEntry.getPlayer() == adversaryNum) {
+    /**
+     * Perform the move at {@code index} of {@code moves} in place, the same way as
+     * {@link Grid#makeMove(GridEntry, Destination, MoveUndo)}, without creating any objects.
+     *
+     * @param moves Moves generated by {@link Grid#generateMoves(PlayerNum, MoveList)} for
+     *              the current position. Cannot be null
+     * @param index Index of the move
+     * @param undo Record to be filled with undo information. Cannot be null
+     */
+    public void makeMove(@NotNull MoveList moves, int index, @NotNull MoveUndo undo) {
+        final long move = moves.get(index);
+        final int src = MoveList.getSource(move);
 
-                value -= 30;
+        if (board.isEmpty(src)) {
+            throw new IllegalArgumentException("Attempt to make a move from NOPLAYER entry");
+        }
 
-                if (gridEntry.getPieceType() == PieceType.KING) {
-                    value -= 80;
-                }
+        beginMove(src, MoveList.getDestination(move), MoveList.isPromotion(move), undo);
 
-                // Prioritize sides
-                value -= Math.abs(gridEntry.getX() + 1 - (size / 2));
+        final int captureCount = MoveList.getCaptureCount(move);
+        for (int step = 0; step < captureCount; ++step) {
+            capturePiece(moves.getCapturedSquare(index, step), undo);
+        }
 
-                //Prioritize forward movement
+        finishMove(undo);
+    }
 
-                if (adversaryNum == PlayerNum.FIRST) {
-                    value -= gridEntry.getY() + 1;
-                } else if (adversaryNum == PlayerNum.SECOND) {
-                    value -= size - gridEntry.getY();
-                }
-            }
-        }
+    /**
+     * Fill {@code undo} with the state of the board before the move.
+     */
+    private void beginMove(int srcSquare, int dstSquare, boolean promotion, @NotNull MoveUndo undo) {
+        undo.srcSquare = srcSquare;
+        undo.dstSquare = dstSquare;
+        undo.player = board.getPlayer(srcSquare);
+        undo.pieceType = board.getPieceType(srcSquare);
+        undo.promotion = promotion;
+        undo.previousMoveCount = moveCount;
+        undo.previousVersion = version;
+        undo.capturedCount = 0;
+    }
 
-        return value;
+    /**
+     * Remove the captured piece from the board, remembering it in {@code undo}.
+     */
+    private void capturePiece(int square, @NotNull MoveUndo undo) {
+        undo.addCaptured(square, board.isKing(square));
+        setEntryState(getEntryBySquare(square), PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
     }
 
-    public static Grid simulateMove(Grid startGrid, GridEntry src, Destination destination) {
-        Grid grid = SerializationUtils.clone(startGrid);
+    /**
+     * Move the piece described by {@code undo} and update the king-only move counter.
+     */
+    private void finishMove(@NotNull MoveUndo undo) {
+        setEntryState(getEntryBySquare(undo.srcSquare), PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+        setEntryState(getEntryBySquare(undo.dstSquare), undo.player, undo.promotion ? PieceType.KING : undo.pieceType);
 
-        GridEntry srcEntry = grid.getEntryByCoords(src.getX(), src.getY());
+        // Count king moves (used in deciding whether to end the game with a draw)
+        if (undo.pieceType == PieceType.KING && undo.capturedCount == 0) ++moveCount;
+        else moveCount = 0;
+    }
 
-        srcEntry.setPlayer(PlayerNum.NOPLAYER);
-        srcEntry.setPieceType(PieceType.UNASSIGNED);
+    /**
+     * Revert the last move made with {@link Grid#makeMove(GridEntry, Destination, MoveUndo)},
+     * restoring captured pieces, the king-only move counter and the movable entries cache.
+     *
+     * @param undo Record filled by the matching {@link Grid#makeMove(GridEntry, Destination, MoveUndo)}
+     *             call. Cannot be null
+     */
+    public void unmakeMove(@NotNull MoveUndo undo) {
+        if (undo.srcSquare == -1) {
+            throw new IllegalStateException("Attempt to unmake a move that was never made");
+        }
 
-        ArrayList<GridEntry> capturedPieces = destination.getCapturedPieces();
-        if (capturedPieces != null) {
-            for (GridEntry destroyed : destination.getCapturedPieces()) {
-                GridEntry destroyedEntry = grid.getEntryByCoords(destroyed.getX(), destroyed.getY());
+        setEntryState(getEntryBySquare(undo.dstSquare), PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+        setEntryState(getEntryBySquare(undo.srcSquare), undo.player, undo.pieceType);
 
-                destroyedEntry.setPieceType(PieceType.UNASSIGNED);
-                destroyedEntry.setPlayer(PlayerNum.NOPLAYER);
-            }
+        final PlayerNum opponent = undo.player == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        for (int i = 0; i < undo.capturedCount; ++i) {
+            setEntryState(
+                    getEntryBySquare(undo.capturedSquares[i]),
+                    opponent,
+                    undo.capturedKings[i] ? PieceType.KING : PieceType.ORDINARY
+            );
         }
 
-        int dstX = destination.getDestinationEntry().getX();
-        int dstY = destination.getDestinationEntry().getY();
+        moveCount = undo.previousMoveCount;
+        // The position is the same as before the move, so are its cached movable entries
+        version = undo.previousVersion;
+    }
 
-        GridEntry dst = grid.getEntryByCoords(dstX, dstY);
-        dst.setPlayer(src.getPlayer());
-        dst.setPieceType(grid.promotionAvailable(src, dst) ? PieceType.KING : src.getPieceType());
+    /**
+     * Perform a move on a copy of {@code startGrid}. The original grid is left untouched.
+     *
+     * @param startGrid Grid to start from. Cannot be null
+     * @param src Source entry. Cannot be null
+     * @param destination Destination of the move. Cannot be null
+     * @return New {@link Grid} with the move performed
+     *
+     * @see Grid#makeMove(GridEntry, Destination, MoveUndo)
+     */
+    @NotNull
+    public static Grid simulateMove(@NotNull Grid startGrid, @NotNull GridEntry src, @NotNull Destination destination) {
+        Grid grid = new Grid(startGrid);
+        grid.makeMove(src, destination, new MoveUndo());
 
         return grid;
     }
-}
\ No newline at end of file
+
+    /**
+     * Movable entries of a player computed for the position with given {@link Grid#version}.
+     * If {@code movePending} is set, they were computed before captured pieces of a move
+     * in progress were removed with {@link Grid#removeGridEntry(GridEntry)}.
+     */
+    private static final class MovableEntries {
+        final long version;
+        final HashMap<GridEntry, ArrayList<Destination>> entries;
+        final boolean movePending;
+
+        MovableEntries(long version, HashMap<GridEntry, ArrayList<Destination>> entries, boolean movePending) {
+            this.version = version;
+            this.entries = entries;
+            this.movePending = movePending;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of moves filled by {@link Grid#generateMoves(PlayerNum, MoveList)}. Moves are
+ * packed into {@code long}s, so generating moves doesn't allocate anything once the buffer has
+ * grown to the size needed. A search is meant to keep one buffer per ply.
+ *
+ * The lower 32 bits of a packed move hold the source square in upper and the destination square in
+ * lower 16 bits (see {@link BitBoard#getSquare(int, int)}), so {@link MoveList#getCode(long)} gives
+ * the same move encoding as used by the AI. Upper bits hold the number of captured pieces,
+ * the promotion flag and the offset of the capture path, which is stored in the buffer as pairs
+ * of captured and landing squares - one pair for each capture step.
+ *
+ * While captures are generated, their steps form a tree kept in a flat arena of parallel arrays,
+ * where every step points to the step it continues. Squares captured along the current branch are
+ * tracked in a bitmask, so checking if a piece has been already captured takes constant time.
+ *
+ * @see Grid#makeMove(MoveList, int, MoveUndo)
+ */
+public class MoveList {
+    private static final int INITIAL_CAPACITY = 32;
+
+    /*
+     * Layout of a packed move, from the lowest bit:
+     * destination square (16 bits), source square (16), captured pieces (8), promotion (1), path offset (23)
+     */
+    private static final int SOURCE_SHIFT = 16;
+    private static final int CAPTURES_SHIFT = 32;
+    private static final int PROMOTION_SHIFT = 40;
+    private static final int PATH_SHIFT = 41;
+    private static final int SQUARE_MASK = 0xFFFF;
+    private static final int MAX_CAPTURES = 0xFF;
+    private static final int MAX_PATH_OFFSET = (1 << 23) - 1;
+
+    private long[] moves = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private int[] path = new int[INITIAL_CAPACITY];
+    private int pathSize;
+
+    // Arena of capture steps, the current step is the last one of the capture being generated
+    private int[] stepLanding = new int[INITIAL_CAPACITY];
+    private int[] stepCaptured = new int[INITIAL_CAPACITY];
+    private int[] stepParent = new int[INITIAL_CAPACITY];
+    private int[] stepLength = new int[INITIAL_CAPACITY];
+    private int stepCount;
+    private int currentStep = -1;
+    private long[] capturedMask = new long[2];
+
+    // Captures shorter than the longest one are dropped when generated, if enabled
+    private boolean longestCapturesOnly;
+    private int longestCapture;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the packed move at given {@code index}.
+     *
+     * @param index Index of the move, less than {@link MoveList#size()}
+     * @return Packed move
+     */
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Move " + index + " out of bounds for list with size " + size);
+        }
+
+        return moves[index];
+    }
+
+    /**
+     * Get the square the piece lands on after {@code step}-th capture of the move at {@code index}.
+     * The square after the last step is the destination of the move.
+     *
+     * @param index Index of the move
+     * @param step Capture step, less than {@link MoveList#getCaptureCount(long)}
+     * @return Square index
+     */
+    public int getLandingSquare(int index, int step) {
+        return path[getPathOffset(get(index)) + 2 * step + 1];
+    }
+
+    /**
+     * Get the square of the piece captured in {@code step}-th capture of the move at {@code index}.
+     *
+     * @param index Index of the move
+     * @param step Capture step, less than {@link MoveList#getCaptureCount(long)}
+     * @return Square index
+     */
+    public int getCapturedSquare(int index, int step) {
+        return path[getPathOffset(get(index)) + 2 * step];
+    }
+
+    @Contract(pure = true)
+    public static int getSource(long move) {
+        return (int) (move >>> SOURCE_SHIFT) & SQUARE_MASK;
+    }
+
+    @Contract(pure = true)
+    public static int getDestination(long move) {
+        return (int) move & SQUARE_MASK;
+    }
+
+    @Contract(pure = true)
+    public static int getCaptureCount(long move) {
+        return (int) (move >>> CAPTURES_SHIFT) & MAX_CAPTURES;
+    }
+
+    /**
+     * Tell if the move promotes the piece to {@link PieceType#KING}.
+     */
+    @Contract(pure = true)
+    public static boolean isPromotion(long move) {
+        return (move & (1L << PROMOTION_SHIFT)) != 0;
+    }
+
+    /**
+     * Get the move encoded as an int, with the source square in upper and the destination square
+     * in lower 16 bits. Moves along different capture paths between the same squares share the code.
+     *
+     * @param move Packed move
+     * @return Encoded move
+     */
+    @Contract(pure = true)
+    public static int getCode(long move) {
+        return (int) move;
+    }
+
+    @Contract(pure = true)
+    private static int getPathOffset(long move) {
+        return (int) (move >>> PATH_SHIFT);
+    }
+
+    /**
+     * Remove all moves, keeping the memory for reuse.
+     */
+    public void clear() {
+        size = 0;
+        pathSize = 0;
+        clearSteps();
+        longestCapturesOnly = false;
+        longestCapture = 0;
+    }
+
+    private void clearSteps() {
+        while (currentStep != -1) {
+            popStep();
+        }
+
+        stepCount = 0;
+    }
+
+    /**
+     * Replace content of the list with moves of {@code other}.
+     *
+     * @param other {@link MoveList} to be copied. Cannot be null
+     */
+    public void copyFrom(@NotNull MoveList other) {
+        if (moves.length < other.size) moves = new long[other.moves.length];
+        if (path.length < other.pathSize) path = new int[other.path.length];
+
+        System.arraycopy(other.moves, 0, moves, 0, other.size);
+        System.arraycopy(other.path, 0, path, 0, other.pathSize);
+        size = other.size;
+        pathSize = other.pathSize;
+        clearSteps();
+    }
+
+    /**
+     * Append a move without captures.
+     *
+     * @param src Source square
+     * @param dst Destination square
+     * @param promotion Whether the piece gets promoted
+     */
+    void add(int src, int dst, boolean promotion) {
+        append(pack(src, dst, 0, promotion, 0));
+    }
+
+    /**
+     * Append a capture consisting of the steps pushed with {@link MoveList#pushStep(int, int)}.
+     * The destination of the move is the landing square of the last step.
+     *
+     * If only the longest captures are retained, the capture is dropped when it's shorter than
+     * the longest one generated so far, and all previous moves are dropped when it's longer.
+     * Moves without captures must not be added before captures in that case.
+     *
+     * @param src Source square
+     * @param promotion Whether the piece gets promoted
+     */
+    void addCapture(int src, boolean promotion) {
+        final int captures = stepLength[currentStep];
+
+        if (longestCapturesOnly) {
+            if (captures < longestCapture) return;
+
+            if (captures > longestCapture) {
+                longestCapture = captures;
+                size = 0;
+                pathSize = 0;
+            }
+        }
+
+        if (captures > MAX_CAPTURES || pathSize > MAX_PATH_OFFSET) {
+            throw new IllegalStateException("Capture doesn't fit in the move list");
+        }
+
+        final int offset = pathSize;
+        pathSize += 2 * captures;
+        if (path.length < pathSize) {
+            path = Arrays.copyOf(path, Math.max(path.length * 2, pathSize));
+        }
+
+        // Steps are linked from the last one, so the path is filled backwards
+        int i = pathSize;
+        for (int step = currentStep; step != -1; step = stepParent[step]) {
+            path[--i] = stepLanding[step];
+            path[--i] = stepCaptured[step];
+        }
+
+        append(pack(src, stepLanding[currentStep], captures, promotion, offset));
+    }
+
+    /**
+     * Extend the capture being generated with another step.
+     *
+     * @param captured Square of the captured piece
+     * @param landing Square the piece lands on
+     */
+    void pushStep(int captured, int landing) {
+        if (stepCount == stepLanding.length) {
+            stepLanding = Arrays.copyOf(stepLanding, stepCount * 2);
+            stepCaptured = Arrays.copyOf(stepCaptured, stepCount * 2);
+            stepParent = Arrays.copyOf(stepParent, stepCount * 2);
+            stepLength = Arrays.copyOf(stepLength, stepCount * 2);
+        }
+
+        if ((captured >>> 6) >= capturedMask.length) {
+            capturedMask = Arrays.copyOf(capturedMask, (captured >>> 6) + 1);
+        }
+
+        stepLanding[stepCount] = landing;
+        stepCaptured[stepCount] = captured;
+        stepParent[stepCount] = currentStep;
+        stepLength[stepCount] = currentStep == -1 ? 1 : stepLength[currentStep] + 1;
+        currentStep = stepCount++;
+        capturedMask[captured >>> 6] |= 1L << captured;
+    }
+
+    /**
+     * Go back to the step preceding the current one. The step stays in the arena until the list
+     * is cleared, so captures sharing a prefix of steps don't copy it.
+     */
+    void popStep() {
+        final int captured = stepCaptured[currentStep];
+        capturedMask[captured >>> 6] &= ~(1L << captured);
+        currentStep = stepParent[currentStep];
+    }
+
+    /**
+     * Tell if the piece at {@code square} has been captured by one of the steps of the capture
+     * being generated.
+     *
+     * @param square Square index
+     * @return {@code true} if the piece has been already captured
+     */
+    boolean isCaptured(int square) {
+        return (square >>> 6) < capturedMask.length && (capturedMask[square >>> 6] & 1L << square) != 0;
+    }
+
+    /**
+     * Make {@link MoveList#addCapture(int, boolean)} retain only the captures of the most pieces,
+     * until the list is cleared.
+     */
+    void retainLongestCapturesOnly() {
+        longestCapturesOnly = true;
+    }
+
+    private void append(long move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+
+        moves[size++] = move;
+    }
+
+    @Contract(pure = true)
+    private static long pack(int src, int dst, int captures, boolean promotion, int pathOffset) {
+        return (long) pathOffset << PATH_SHIFT
+                | (promotion ? 1L << PROMOTION_SHIFT : 0)
+                | (long) captures << CAPTURES_SHIFT
+                | (long) src << SOURCE_SHIFT
+                | dst;
+    }
+}
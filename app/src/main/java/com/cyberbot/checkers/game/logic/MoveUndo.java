@@ -0,0 +1,59 @@
+package com.cyberbot.checkers.game.logic;
+
+import java.util.Arrays;
+
+/**
+ * Stores everything that is needed to revert a move made with
+ * {@link Grid#makeMove(GridEntry, Destination, MoveUndo)}: source and destination squares,
+ * the moved piece, captured pieces, promotion flag, previous king-only move counter
+ * and the version of the position from before the move.
+ *
+ * The object is meant to be reused - calling {@link Grid#makeMove(GridEntry, Destination, MoveUndo)}
+ * overwrites its previous content, so a search can keep one record per ply.
+ *
+ * @see Grid#unmakeMove(MoveUndo)
+ */
+public class MoveUndo {
+    private static final int INITIAL_CAPACITY = 8;
+
+    int srcSquare = -1;
+    int dstSquare = -1;
+    PlayerNum player = PlayerNum.NOPLAYER;
+    PieceType pieceType = PieceType.UNASSIGNED;
+    boolean promotion;
+    int previousMoveCount;
+    long previousVersion;
+
+    int capturedCount;
+    int[] capturedSquares = new int[INITIAL_CAPACITY];
+    boolean[] capturedKings = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * Tell if the move has promoted the piece to {@link PieceType#KING}.
+     *
+     * @return {@code true} if the piece was promoted, {@code false} otherwise
+     */
+    public boolean isPromotion() {
+        return promotion;
+    }
+
+    public int getCapturedCount() {
+        return capturedCount;
+    }
+
+    /**
+     * Append a captured piece to the record, growing the arrays if needed.
+     *
+     * @param square Square index of the captured piece
+     * @param king Whether the captured piece was a king
+     */
+    void addCaptured(int square, boolean king) {
+        if (capturedCount == capturedSquares.length) {
+            capturedSquares = Arrays.copyOf(capturedSquares, capturedCount * 2);
+            capturedKings = Arrays.copyOf(capturedKings, capturedCount * 2);
+        }
+
+        capturedSquares[capturedCount] = square;
+        capturedKings[capturedCount++] = king;
+    }
+}
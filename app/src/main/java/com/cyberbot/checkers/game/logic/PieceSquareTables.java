@@ -0,0 +1,91 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides piece-square tables used by {@link Grid#getValue(PlayerNum, PlayerNum)}. Every
+ * combination of a square and a piece (owner and type) gets its value and the value of a player
+ * is the sum of values of all its pieces, so it can be updated incrementally when pieces are moved.
+ *
+ * A piece is worth 30 points plus 80 for a king, with bonuses for being close to the sides and
+ * for advancing towards the promotion row.
+ */
+public final class PieceSquareTables {
+    private static final int ORDINARY_VALUE = 30;
+    private static final int KING_VALUE = ORDINARY_VALUE + 80;
+    private static final int PIECE_KINDS = 4;
+    private static final ConcurrentHashMap<Integer, int[]> TABLES = new ConcurrentHashMap<>();
+
+    private PieceSquareTables() {
+    }
+
+    /**
+     * Get the material value of a piece of given type, without the positional bonuses.
+     *
+     * @param pieceType Type of the piece
+     * @return The value or 0 for {@link PieceType#UNASSIGNED}
+     */
+    static int getMaterial(PieceType pieceType) {
+        switch (pieceType) {
+            case ORDINARY:
+                return ORDINARY_VALUE;
+            case KING:
+                return KING_VALUE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get piece-square tables for the board of given {@code size}. Tables are generated once
+     * per size and shared.
+     *
+     * @param size Size of the board
+     * @return Array of values indexed by {@code square * 4 + kind}, see {@link PieceSquareTables#getValue(int[], int, PlayerNum, PieceType)}
+     */
+    @NotNull
+    static int[] getTables(int size) {
+        int[] tables = TABLES.get(size);
+        if (tables != null) return tables;
+
+        final BoardGeometry geometry = BoardGeometry.forSize(size);
+        tables = new int[BitBoard.getSquareCount(size) * PIECE_KINDS];
+        for (int square = 0; square < BitBoard.getSquareCount(size); ++square) {
+            final int x = geometry.getSquareX(square);
+            final int y = geometry.getSquareY(square);
+
+            // Prioritize sides
+            final int side = Math.abs(x + 1 - (size / 2));
+
+            // Prioritize forward movement
+            final int firstAdvancement = y + 1;
+            final int secondAdvancement = size - y;
+
+            tables[square * PIECE_KINDS] = ORDINARY_VALUE + side + firstAdvancement;
+            tables[square * PIECE_KINDS + 1] = KING_VALUE + side + firstAdvancement;
+            tables[square * PIECE_KINDS + 2] = ORDINARY_VALUE + side + secondAdvancement;
+            tables[square * PIECE_KINDS + 3] = KING_VALUE + side + secondAdvancement;
+        }
+
+        final int[] previous = TABLES.putIfAbsent(size, tables);
+        return previous != null ? previous : tables;
+    }
+
+    /**
+     * Get the value of a piece placed on given square.
+     *
+     * @param tables Tables returned by {@link PieceSquareTables#getTables(int)}
+     * @param square Square index
+     * @param player Owner of the piece
+     * @param pieceType Type of the piece
+     * @return The value or 0 when the square is empty
+     */
+    static int getValue(@NotNull int[] tables, int square, PlayerNum player, PieceType pieceType) {
+        if (player == PlayerNum.NOPLAYER || pieceType == PieceType.UNASSIGNED) return 0;
+
+        final int kind = (player == PlayerNum.FIRST ? 0 : 2) + (pieceType == PieceType.KING ? 1 : 0);
+        return tables[square * PIECE_KINDS + kind];
+    }
+}
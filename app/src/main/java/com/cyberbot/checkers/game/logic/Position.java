@@ -0,0 +1,101 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of a {@link Grid} - placement of pieces, the king-only move counter and
+ * the rules. It's exported with {@link Grid#toPosition()}, which only copies a few words of
+ * {@link BitBoard}, and a {@link Grid} can be restored from it with {@link Grid#Grid(Position)}.
+ *
+ * Positions can be shared between threads without any synchronization, so the AI can search
+ * a snapshot while the UI keeps working on the original grid. They're also {@link Serializable},
+ * which makes them suitable for saving the game.
+ */
+public final class Position implements Serializable {
+    private final BitBoard board;
+    private final int moveCount;
+    private final long hash;
+    private final boolean canMoveBackwards;
+    private final boolean canCaptureBackwards;
+    private final boolean flyingKing;
+    private final boolean mandatoryCapture;
+
+    Position(@NotNull BitBoard board, int moveCount, long hash, boolean canMoveBackwards,
+             boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture) {
+        this.board = new BitBoard(board);
+        this.moveCount = moveCount;
+        this.hash = hash;
+        this.canMoveBackwards = canMoveBackwards;
+        this.canCaptureBackwards = canCaptureBackwards;
+        this.flyingKing = flyingKing;
+        this.mandatoryCapture = mandatoryCapture;
+    }
+
+    public int getSize() {
+        return board.getSize();
+    }
+
+    /**
+     * Get the placement of pieces. The board can't be modified from outside of the package
+     * and it's never modified inside it, so it's safe to share.
+     *
+     * @return {@link BitBoard} of the position
+     */
+    @NotNull
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Get the number of consecutive king moves without captures, see {@link GameEndReason#DRAW_TOO_MANY_KING_ONLY_MOVES}.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get Zobrist hash of the placement of pieces, the same as {@link Grid#getHash()} of the grid
+     * the position was exported from.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public boolean canMoveBackwards() {
+        return canMoveBackwards;
+    }
+
+    public boolean canCaptureBackwards() {
+        return canCaptureBackwards;
+    }
+
+    public boolean isFlyingKing() {
+        return flyingKing;
+    }
+
+    public boolean isMandatoryCapture() {
+        return mandatoryCapture;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Position)) return false;
+
+        final Position other = (Position) o;
+        return hash == other.hash
+                && moveCount == other.moveCount
+                && canMoveBackwards == other.canMoveBackwards
+                && canCaptureBackwards == other.canCaptureBackwards
+                && flyingKing == other.flyingKing
+                && mandatoryCapture == other.mandatoryCapture
+                && board.hasSamePieces(other.board);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(hash) + moveCount;
+    }
+}
@@ -0,0 +1,66 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides random keys used for Zobrist hashing of {@link Grid} positions. Every combination of
+ * a square and a piece (owner and type) gets its own key and the hash of a position is the XOR of
+ * keys of all pieces on the board, so it can be updated incrementally when pieces are moved.
+ *
+ * Keys are generated from a fixed seed, so hashes are the same across runs and devices and
+ * can be stored in files.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final int PIECE_KINDS = 4;
+    private static final ConcurrentHashMap<Integer, long[]> PIECE_KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Key to be XOR-ed with a position hash when {@link PlayerNum#SECOND} is the side to move.
+     * {@link Grid} doesn't know whose turn it is, so it's up to the caller to apply it.
+     */
+    public static final long SIDE_KEY = new Random(SEED).nextLong();
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get piece keys for the board of given {@code size}. Keys are generated once per size and shared.
+     *
+     * @param size Size of the board
+     * @return Array of keys indexed by {@code square * 4 + kind}, see {@link Zobrist#getKey(long[], int, PlayerNum, PieceType)}
+     */
+    @NotNull
+    static long[] getPieceKeys(int size) {
+        long[] keys = PIECE_KEYS.get(size);
+        if (keys != null) return keys;
+
+        final Random random = new Random(SEED ^ size);
+        keys = new long[BitBoard.getSquareCount(size) * PIECE_KINDS];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = random.nextLong();
+        }
+
+        final long[] previous = PIECE_KEYS.putIfAbsent(size, keys);
+        return previous != null ? previous : keys;
+    }
+
+    /**
+     * Get the key of a piece placed on given square.
+     *
+     * @param keys Keys returned by {@link Zobrist#getPieceKeys(int)}
+     * @param square Square index
+     * @param player Owner of the piece
+     * @param pieceType Type of the piece
+     * @return The key or 0 when the square is empty, so it can always be XOR-ed with the hash
+     */
+    static long getKey(@NotNull long[] keys, int square, PlayerNum player, PieceType pieceType) {
+        if (player == PlayerNum.NOPLAYER || pieceType == PieceType.UNASSIGNED) return 0;
+
+        final int kind = (player == PlayerNum.FIRST ? 0 : 2) + (pieceType == PieceType.KING ? 1 : 0);
+        return keys[square * PIECE_KINDS + kind];
+    }
+}
@@ -9,14 +9,22 @@ import com.cyberbot.checkers.R
 import com.cyberbot.checkers.fx.Sound
 import com.cyberbot.checkers.fx.SoundType
 import com.cyberbot.checkers.game.ai.AiPlayer
+import com.cyberbot.checkers.game.ai.EndgameTablebase
+import com.cyberbot.checkers.game.ai.Move
+import com.cyberbot.checkers.game.ai.OpeningBook
+import com.cyberbot.checkers.game.ai.SearchHandle
+import com.cyberbot.checkers.game.ai.SearchListener
 import com.cyberbot.checkers.game.logic.GameEnd
 import com.cyberbot.checkers.game.logic.Grid
 import com.cyberbot.checkers.game.logic.GridEntry
 import com.cyberbot.checkers.game.logic.PlayerNum
+import com.cyberbot.checkers.game.logic.Position
 import com.cyberbot.checkers.preferences.Preferences
 import com.cyberbot.checkers.ui.getEndGameString
 import com.cyberbot.checkers.ui.view.MoveAttemptListener
 import kotlinx.android.synthetic.main.activity_game.*
+import java.io.File
+import java.io.IOException
 import kotlin.math.max
 
 
@@ -24,10 +32,16 @@ class GameActivity : AppCompatActivity() {
 
     companion object {
         val GRID_STATE_KEY = "grid"
-        val TURN_KEY = "grid"
+        val TURN_KEY = "turn"
+
+        /**
+         * Maximum time in milliseconds the AI can spend searching for a move.
+         */
+        const val AI_TIME_BUDGET = 1000L
     }
 
     private lateinit var aiPlayer: AiPlayer
+    private var aiSearch: SearchHandle? = null
     private var gameEnded = false
 
     override fun onCreate(savedInstanceState: Bundle?) {
@@ -38,7 +52,7 @@ class GameActivity : AppCompatActivity() {
         val pref = Preferences.fromContext(this)
         if (savedInstanceState != null) {
             savedInstanceState.run {
-                checkersGridView.gridData = getSerializable(GRID_STATE_KEY) as Grid
+                checkersGridView.gridData = Grid(getSerializable(GRID_STATE_KEY) as Position)
                 checkersGridView.playerTurn = getSerializable(TURN_KEY) as PlayerNum
             }
         } else {
@@ -50,8 +64,13 @@ class GameActivity : AppCompatActivity() {
         aiPlayer = AiPlayer(
             PlayerNum.FIRST,
             PlayerNum.SECOND,
-            pref.aiDepth
-        )
+            pref.aiDepth,
+            AI_TIME_BUDGET
+        ).apply {
+            threadCount = Runtime.getRuntime().availableProcessors()
+            setEndgameTablebase(loadEndgameTablebase(checkersGridView.gridData.toPosition()))
+            setOpeningBook(loadOpeningBook(checkersGridView.gridData.toPosition()))
+        }
 
         checkersGridView.moveAttemptListener = object : MoveAttemptListener {
             override fun onForcedMoveStart(grid: Grid, srcEntry: GridEntry, dstEntry: GridEntry) {
@@ -70,7 +89,7 @@ class GameActivity : AppCompatActivity() {
                 move_player2.text = getString(R.string.game_player_turn_info)
 
                 checkersGridView.playerTurn = PlayerNum.SECOND
-
+                aiPlayer.startPondering(grid)
             }
 
             override fun onUserMoveStart(grid: Grid, srcEntry: GridEntry) {
@@ -95,13 +114,57 @@ class GameActivity : AppCompatActivity() {
                 }
             }
         }
+
+        // The search of the AI is cancelled when the activity is destroyed, so it has to be started again
+        if (checkersGridView.playerTurn == PlayerNum.NOPLAYER && checkersGridView.gridData.isGameOver == null) {
+            executeAiMove()
+        }
+    }
+
+    /**
+     * Load the endgame tablebase for the rules of [position], if it has been generated
+     * with [com.cyberbot.checkers.game.ai.EndgameTablebaseGenerator] and put in the files directory.
+     */
+    private fun loadEndgameTablebase(position: Position): EndgameTablebase? {
+        val file = File(filesDir, EndgameTablebase.getFileName(position))
+        if (!file.exists()) {
+            return null
+        }
+
+        return try {
+            EndgameTablebase.load(file)
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    /**
+     * Load the opening book for the rules of [position], if it has been generated
+     * with [com.cyberbot.checkers.game.ai.OpeningBookGenerator] and put in the files directory.
+     */
+    private fun loadOpeningBook(position: Position): OpeningBook? {
+        val file = File(filesDir, OpeningBook.getFileName(position))
+        if (!file.exists()) {
+            return null
+        }
+
+        return try {
+            OpeningBook.load(file)
+        } catch (e: IOException) {
+            null
+        }
     }
 
     private fun handleEndGame(end: GameEnd, delay: Long = 1500) {
         gameEnded = true
+        aiPlayer.stopPondering()
         Thread().apply {
             Thread.sleep(delay)
             runOnUiThread {
+                if (isDestroyed) {
+                    return@runOnUiThread
+                }
+
                 when (end.winner) {
                     PlayerNum.SECOND -> {
                         gameEndReason.text = getEndGameString(end.reason, true)
@@ -129,20 +192,28 @@ class GameActivity : AppCompatActivity() {
     private fun executeAiMove() {
         checkersGridView.playerTurn = PlayerNum.NOPLAYER
         move_player2.text = getString(R.string.game_ai_thinking)
-        Thread {
-            Sound.playSound(this@GameActivity, SoundType.AI_THINK)
-
-            val startThinking = System.currentTimeMillis()
-            aiPlayer.executeMove(checkersGridView.gridData)
-            val endThinking = System.currentTimeMillis()
+        Sound.playSound(this, SoundType.AI_THINK)
+
+        val startThinking = System.currentTimeMillis()
+        aiSearch = aiPlayer.startSearch(checkersGridView.gridData, object : SearchListener {
+            override fun onFinished(move: Move?) {
+                val endThinking = System.currentTimeMillis()
+
+                // Move found by pondering is played right away, otherwise the AI pretends to think for a while
+                val delay = if (aiPlayer.isPonderHit) 0L else max(0, 1000 - (endThinking - startThinking))
+                checkersGridView.postDelayed({
+                    // The search may have finished just before the activity was destroyed
+                    if (isDestroyed || move == null) {
+                        return@postDelayed
+                    }
 
-            Thread.sleep(max(0, 1000 - (endThinking - startThinking)))
-            runOnUiThread {
-                val src = aiPlayer.aiMoveSource
-                val dst = aiPlayer.aiMoveDestination.destinationEntry
-                checkersGridView.animateMove(src, dst)
+                    aiSearch = null
+                    val src = aiPlayer.aiMoveSource
+                    val dst = aiPlayer.aiMoveDestination.destinationEntry
+                    checkersGridView.animateMove(src, dst)
+                }, delay)
             }
-        }.start()
+        })
     }
 
     override fun onBackPressed() {
@@ -163,9 +234,17 @@ class GameActivity : AppCompatActivity() {
         builder.create().show()
     }
 
+    override fun onDestroy() {
+        aiSearch?.cancel(false)
+        aiSearch = null
+        // Threads of the search would outlive the activity otherwise
+        aiPlayer.shutdown()
+        super.onDestroy()
+    }
+
     override fun onSaveInstanceState(outState: Bundle) {
         outState.run {
-            putSerializable(GRID_STATE_KEY, checkersGridView.gridData)
+            putSerializable(GRID_STATE_KEY, checkersGridView.gridData.toPosition())
             putSerializable(TURN_KEY, checkersGridView.playerTurn)
         }
 
@@ -0,0 +1,127 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+/**
+ * Measures the speedup of the parallel search in each {@link ParallelMode} for each thread count
+ * up to the number of available cores. All searches go to the same depth, so for Lazy SMP it's
+ * the time needed to reach the depth. Also measures the depth reached in a fixed time by each
+ * combination of selective search techniques. Excluded from regular test runs, use
+ * {@code ./gradlew testDebugUnitTest -Pbenchmark} to run it.
+ */
+@Tag("benchmark")
+class AiPlayerBenchmark {
+    private static final int SIZE = 10;
+    private static final int PLAYER_ROWS = 4;
+    private static final int DEPTH = 7;
+    private static final int PLIES = 12;
+    private static final int MEASURED_ROUNDS = 3;
+    private static final int MAX_DEPTH = 40;
+    private static final long TIME_BUDGET = 200;
+
+    private static long median(long[] samples) {
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Play a few moves of the game with the AI on both sides.
+     */
+    private static long measureGame(int threads, ParallelMode mode) {
+        final AiPlayer[] players = {
+                new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, DEPTH),
+                new AiPlayer(PlayerNum.SECOND, PlayerNum.FIRST, DEPTH)
+        };
+        for (AiPlayer player : players) {
+            player.setThreadCount(threads);
+            player.setParallelMode(mode);
+        }
+
+        Grid grid = new Grid(SIZE, PLAYER_ROWS);
+
+        final long start = System.nanoTime();
+        for (int ply = 0; ply < PLIES && grid.isGameOver() == null; ++ply) {
+            final AiPlayer player = players[ply % 2];
+            player.executeMove(grid);
+            grid = Grid.simulateMove(grid, player.getAiMoveSource(), player.getAiMoveDestination());
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    void measureParallelSpeedup() {
+        final int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm up
+        measureGame(1, ParallelMode.ROOT_SPLIT);
+
+        for (ParallelMode mode : ParallelMode.values()) {
+            long serial = 0;
+            System.out.println(mode);
+            System.out.println("threads | time [ms] | speedup");
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                long[] samples = new long[MEASURED_ROUNDS];
+                for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+                    samples[i] = measureGame(threads, mode);
+                }
+
+                final long time = median(samples);
+                if (threads == 1) serial = time;
+
+                System.out.printf("%7d | %9d | %7.2f%n", threads, time / 1000000, (double) serial / time);
+
+                if (threads < cores && threads * 2 > cores) threads = cores / 2;
+            }
+        }
+    }
+
+    /**
+     * Play a few moves of the game with the AI on both sides, searching with a fixed time budget.
+     *
+     * @return average depth of completed iterations
+     */
+    private static double measureDepth(boolean lateMoveReductions, boolean futilityPruning) {
+        final AiPlayer[] players = {
+                new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, MAX_DEPTH, TIME_BUDGET),
+                new AiPlayer(PlayerNum.SECOND, PlayerNum.FIRST, MAX_DEPTH, TIME_BUDGET)
+        };
+        for (AiPlayer player : players) {
+            player.setLateMoveReductionsEnabled(lateMoveReductions);
+            player.setFutilityPruningEnabled(futilityPruning);
+        }
+
+        Grid grid = new Grid(SIZE, PLAYER_ROWS);
+
+        int depth = 0;
+        int ply = 0;
+        for (; ply < PLIES && grid.isGameOver() == null; ++ply) {
+            final AiPlayer player = players[ply % 2];
+            player.executeMove(grid);
+            depth += player.getCompletedDepth();
+            grid = Grid.simulateMove(grid, player.getAiMoveSource(), player.getAiMoveDestination());
+        }
+
+        return (double) depth / ply;
+    }
+
+    @Test
+    void measureSelectiveSearchDepth() {
+        // Warm up
+        measureDepth(true, true);
+
+        System.out.println("late move reductions | futility pruning | depth");
+        for (boolean lateMoveReductions : new boolean[]{false, true}) {
+            for (boolean futilityPruning : new boolean[]{false, true}) {
+                System.out.printf("%20b | %16b | %5.2f%n", lateMoveReductions, futilityPruning,
+                        measureDepth(lateMoveReductions, futilityPruning));
+            }
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Destination;
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.GridEntry;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PieceType;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiPlayerTest {
+    private static final int PLIES = 30;
+    private static final int THREADS = 3;
+
+    /**
+     * Chooses the move of the side to move in a game played by {@link AiPlayerTest#playGame(int, int, Turn)}.
+     */
+    private interface Turn {
+        /**
+         * @param grid Current position, mustn't be modified
+         * @param player Side to move
+         * @return AI whose move is made
+         */
+        AiPlayer play(Grid grid, PlayerNum player);
+    }
+
+    private static PlayerNum getOpponent(PlayerNum player) {
+        return player == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+    }
+
+    private static AiPlayer createPlayer(PlayerNum aiNum, int depth, int threads) {
+        AiPlayer player = new AiPlayer(aiNum, getOpponent(aiNum), depth);
+        // Transposition table and selective search make the result depend on the order of search
+        player.setTranspositionTableSize(0);
+        player.setLateMoveReductionsEnabled(false);
+        player.setFutilityPruningEnabled(false);
+        player.setThreadCount(threads);
+
+        return player;
+    }
+
+    /**
+     * Create a single threaded player like {@link AiPlayerTest#createPlayer(PlayerNum, int, int)},
+     * but deepening iteratively with a budget that never runs out, so every iteration is completed.
+     */
+    private static AiPlayer createIterativePlayer(PlayerNum aiNum, int depth) {
+        AiPlayer player = new AiPlayer(aiNum, getOpponent(aiNum), depth, Long.MAX_VALUE / 2000000);
+        player.setTranspositionTableSize(0);
+        player.setLateMoveReductionsEnabled(false);
+        player.setFutilityPruningEnabled(false);
+
+        return player;
+    }
+
+    /**
+     * Play {@link AiPlayerTest#PLIES} plies from the starting position, or until the game is over.
+     * The move of the AI returned by {@code turn} is checked to be legal before it's made.
+     */
+    private static void playGame(int size, int playerRows, Turn turn) {
+        Grid grid = new Grid(size, playerRows);
+        PlayerNum player = PlayerNum.FIRST;
+
+        for (int ply = 0; ply < PLIES && grid.isGameOver() == null; ++ply) {
+            final AiPlayer ai = turn.play(grid, player);
+
+            final ArrayList<Destination> destinations = grid.getMovableEntries(player).get(ai.getAiMoveSource());
+            assertNotNull(destinations);
+            assertTrue(destinations.contains(ai.getAiMoveDestination()));
+
+            grid = Grid.simulateMove(grid, ai.getAiMoveSource(), ai.getAiMoveDestination());
+            player = getOpponent(player);
+        }
+    }
+
+    /**
+     * Put pieces on the grid. Pieces are separated by spaces, each one given by its type - {@code f}
+     * or {@code s} for ordinary pieces of the first or the second player, upper case for kings -
+     * followed by its coordinates, e.g. {@code "F0,9 s2,7"}.
+     */
+    static void placePieces(Grid grid, String pieces) {
+        for (String piece : pieces.split(" ")) {
+            final String[] coords = piece.substring(1).split(",");
+            final char type = piece.charAt(0);
+
+            grid.setPiece(grid.getBoard().getSquare(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])),
+                    Character.toLowerCase(type) == 'f' ? PlayerNum.FIRST : PlayerNum.SECOND,
+                    Character.isUpperCase(type) ? PieceType.KING : PieceType.ORDINARY);
+        }
+    }
+
+    private static void assertMove(AiPlayer player, int srcX, int srcY, int dstX, int dstY) {
+        final GridEntry src = player.getAiMoveSource();
+        final GridEntry dst = player.getAiMoveDestination().getDestinationEntry();
+        assertEquals(srcX + "," + srcY + "-" + dstX + "," + dstY,
+                src.getX() + "," + src.getY() + "-" + dst.getX() + "," + dst.getY());
+    }
+
+    private static void assertSameMove(AiPlayer expected, AiPlayer actual) {
+        assertSame(expected.getAiMoveSource(), actual.getAiMoveSource());
+        assertEquals(
+                expected.getAiMoveDestination().getDestinationEntry(),
+                actual.getAiMoveDestination().getDestinationEntry()
+        );
+    }
+
+    /**
+     * Plain negamax without any pruning, the way the search worked before it was made iterative,
+     * as a point of reference for the search of {@link AiPlayer}.
+     *
+     * @return Score of the position for {@code player} and the encoded best move, the lowest
+     * of moves with equal scores, or {@link TranspositionTable#NO_MOVE} at the leaves
+     */
+    private static int[] minimax(Grid grid, int depth, PlayerNum player) {
+        final PlayerNum opponent = getOpponent(player);
+        if (depth == 0) {
+            return new int[]{grid.getValue(player, opponent), TranspositionTable.NO_MOVE};
+        }
+
+        final MoveList moves = new MoveList();
+        final MoveUndo undo = new MoveUndo();
+        grid.generateMoves(player, moves);
+
+        int value = Integer.MIN_VALUE + 1;
+        int bestMove = TranspositionTable.NO_MOVE;
+        for (int i = 0; i < moves.size(); ++i) {
+            grid.makeMove(moves, i, undo);
+            final int moveValue = -minimax(grid, depth - 1, opponent)[0];
+            grid.unmakeMove(undo);
+
+            final int move = MoveList.getCode(moves.get(i));
+            if (bestMove == TranspositionTable.NO_MOVE || moveValue > value || (moveValue == value && move < bestMove)) {
+                value = moveValue;
+                bestMove = move;
+            }
+        }
+
+        return new int[]{value, bestMove};
+    }
+
+    @ParameterizedTest
+    @MethodSource("minimaxProvider")
+    void searchShouldMatchPlainMinimax(int size, int playerRows, String pieces, int depth) throws Exception {
+        final Grid grid = new Grid(size, playerRows);
+        if (!pieces.isEmpty()) placePieces(grid, pieces);
+        final int[] expected = minimax(grid, depth, PlayerNum.FIRST);
+
+        // Only pruning that can't change the result is left, in any order of moves and split between threads
+        for (int threads : new int[]{1, THREADS}) {
+            for (boolean moveOrdering : new boolean[]{false, true}) {
+                for (boolean principalVariationSearch : new boolean[]{false, true}) {
+                    final AiPlayer player = createPlayer(PlayerNum.FIRST, depth, threads);
+                    player.setQuiescenceNodeLimit(0);
+                    player.setMoveOrderingEnabled(moveOrdering);
+                    player.setPrincipalVariationSearchEnabled(principalVariationSearch);
+
+                    final List<SearchProgress> progress = new CopyOnWriteArrayList<>();
+                    final Move move = player.startSearch(grid, new SearchListener() {
+                        @Override
+                        public void onProgress(SearchProgress p) {
+                            progress.add(p);
+                        }
+                    }).get();
+
+                    assertEquals(expected[1], grid.getBoard().getSquare(move.getSrcX(), move.getSrcY()) << 16
+                            | grid.getBoard().getSquare(move.getDstX(), move.getDstY()));
+                    assertEquals(depth, progress.get(progress.size() - 1).getDepth());
+                    assertEquals(expected[0], progress.get(progress.size() - 1).getScore());
+                }
+            }
+        }
+    }
+
+    @Test
+    void quiescenceSearchShouldSeeCapturesBeyondTheHorizon() {
+        // Moving to (6, 3) looks best statically, but the piece at (7, 4) captures it right after
+        final Grid grid = new Grid(8, 0);
+        placePieces(grid, "f5,2 f0,1 s7,4 s1,6");
+
+        final AiPlayer staticLeaves = createPlayer(PlayerNum.FIRST, 1, 1);
+        staticLeaves.setQuiescenceNodeLimit(0);
+        staticLeaves.executeMove(grid);
+        assertMove(staticLeaves, 5, 2, 6, 3);
+        assertEquals(0, staticLeaves.getStatistics().getQuiescenceNodes());
+
+        final AiPlayer quiescence = createPlayer(PlayerNum.FIRST, 1, 1);
+        quiescence.executeMove(grid);
+        assertNotSame(grid.getEntryByCoords(6, 3), quiescence.getAiMoveDestination().getDestinationEntry());
+        assertTrue(quiescence.getStatistics().getQuiescenceNodes() > 0);
+    }
+
+    @Test
+    void quiescenceSearchShouldRespectNodeLimit() {
+        // Captures go on for several plies after most moves of the first player
+        final Grid grid = new Grid(8, 0);
+        placePieces(grid, "f1,0 f2,1 f6,1 f1,2 f3,2 s5,2 f4,3 s1,4 s6,5 s0,7");
+        final int limit = 2;
+
+        final AiPlayer unlimited = createPlayer(PlayerNum.FIRST, 1, 1);
+        unlimited.setQuiescenceNodeLimit(Integer.MAX_VALUE);
+        unlimited.executeMove(grid);
+
+        final AiPlayer limited = createPlayer(PlayerNum.FIRST, 1, 1);
+        limited.setQuiescenceNodeLimit(limit);
+        limited.executeMove(grid);
+
+        // Every leaf of the main search starts a quiescence search of its own, and leaves are a part of all nodes
+        final long nodes = limited.getStatistics().getNodes();
+        assertEquals(nodes, unlimited.getStatistics().getNodes());
+        assertTrue(unlimited.getStatistics().getQuiescenceNodes() > limit * nodes);
+        assertTrue(limited.getStatistics().getQuiescenceNodes() <= limit * nodes);
+        assertNotNull(grid.getDestination(limited.getAiMoveSource(), limited.getAiMoveDestination().getDestinationEntry()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("timeBudgetProvider")
+    void searchShouldStopWhenTimeBudgetRunsOut(int threads, ParallelMode mode) {
+        final long budget = 200;
+        final Grid grid = new Grid(10, 4);
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 40, budget);
+        player.setThreadCount(threads);
+        player.setParallelMode(mode);
+
+        final long start = System.nanoTime();
+        player.executeMove(grid);
+        final long elapsed = (System.nanoTime() - start) / 1000000;
+
+        // The search is aborted within a few hundred nodes once the deadline has passed
+        assertTrue(elapsed < budget + 300, "Search took " + elapsed + " ms");
+        assertTrue(player.getCompletedDepth() >= 1);
+        assertTrue(player.getCompletedDepth() < 40);
+        assertNotNull(grid.getDestination(player.getAiMoveSource(), player.getAiMoveDestination().getDestinationEntry()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void parallelSearchShouldChooseTheSameMovesAsSerial(int size, int playerRows, int depth) {
+        playGame(size, playerRows, (grid, player) -> {
+            final AiPlayer serial = createPlayer(player, depth, 1);
+            final AiPlayer parallel = createPlayer(player, depth, THREADS);
+            serial.executeMove(grid);
+            parallel.executeMove(grid);
+
+            assertSameMove(serial, parallel);
+            return serial;
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void moveOrderingShouldCutOffMoreOftenWithFewerNodes(int size, int playerRows, int depth) {
+        final SearchStatistics unordered = new SearchStatistics();
+        final SearchStatistics ordered = new SearchStatistics();
+
+        playGame(size, playerRows, (grid, player) -> {
+            final AiPlayer plain = createPlayer(player, depth, 1);
+            plain.setMoveOrderingEnabled(false);
+            final AiPlayer ordering = createPlayer(player, depth, 1);
+
+            plain.executeMove(grid);
+            ordering.executeMove(grid);
+            unordered.add(plain.getStatistics());
+            ordered.add(ordering.getStatistics());
+
+            // Alpha-beta finds the same score in any order, but the move can differ between equal ones
+            return ordering;
+        });
+
+        assertTrue(ordered.getFirstMoveCutoffRate() > unordered.getFirstMoveCutoffRate());
+        assertTrue(ordered.getNodes() < unordered.getNodes());
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void lazySmpSearchShouldChooseLegalMoves(int size, int playerRows, int depth) {
+        final AiPlayer[] players = {
+                new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth),
+                new AiPlayer(PlayerNum.SECOND, PlayerNum.FIRST, depth)
+        };
+        for (AiPlayer player : players) {
+            player.setThreadCount(THREADS);
+            player.setParallelMode(ParallelMode.LAZY_SMP);
+        }
+
+        playGame(size, playerRows, (grid, player) -> {
+            final AiPlayer ai = players[player == PlayerNum.FIRST ? 0 : 1];
+            ai.executeMove(grid);
+            return ai;
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void reusedSearchTreeShouldChooseTheSameMovesWithFewerNodes(int size, int playerRows, int depth) {
+        final AiPlayer[] reusing = {createIterativePlayer(PlayerNum.FIRST, depth), createIterativePlayer(PlayerNum.SECOND, depth)};
+        final AiPlayer[] fresh = {createIterativePlayer(PlayerNum.FIRST, depth), createIterativePlayer(PlayerNum.SECOND, depth)};
+        final int[] reused = {0};
+        final long[] reusingNodes = {0};
+        final long[] freshNodes = {0};
+
+        for (AiPlayer ai : fresh) {
+            ai.setSearchTreeReuseEnabled(false);
+        }
+
+        playGame(size, playerRows, (grid, player) -> {
+            final int side = player == PlayerNum.FIRST ? 0 : 1;
+            fresh[side].executeMove(grid);
+            reusing[side].executeMove(grid);
+
+            assertFalse(fresh[side].isSearchTreeReused());
+            if (reusing[side].isSearchTreeReused()) ++reused[0];
+            assertEquals(depth, reusing[side].getCompletedDepth());
+            assertSameMove(fresh[side], reusing[side]);
+
+            freshNodes[0] += fresh[side].getStatistics().getNodes();
+            reusingNodes[0] += reusing[side].getStatistics().getNodes();
+            return reusing[side];
+        });
+
+        // Both players search with the same depth, so replies are often predicted,
+        // and then iterations already done by the previous search are skipped
+        assertTrue(reused[0] > 0);
+        assertTrue(reusingNodes[0] < freshNodes[0]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void ponderingShouldNotChangeChosenMoves(int size, int playerRows, int depth) {
+        final AiPlayer pondering = createPlayer(PlayerNum.FIRST, depth, 1);
+        final AiPlayer opponent = createPlayer(PlayerNum.SECOND, depth - 1, 1);
+        final int[] ponderHits = {0};
+
+        playGame(size, playerRows, (grid, player) -> {
+            if (player == PlayerNum.SECOND) {
+                pondering.startPondering(grid);
+                opponent.executeMove(grid);
+                return opponent;
+            }
+
+            final AiPlayer fresh = createPlayer(PlayerNum.FIRST, depth, 1);
+            fresh.executeMove(grid);
+            pondering.executeMove(grid);
+
+            if (pondering.isPonderHit()) ++ponderHits[0];
+            assertSameMove(fresh, pondering);
+            return pondering;
+        });
+
+        pondering.stopPondering();
+        assertFalse(pondering.isPondering());
+
+        // The opponent searches as deep as the reply was searched, so it often makes the predicted one
+        assertTrue(ponderHits[0] > 0);
+    }
+
+    @Test
+    void ponderingShouldUseOneThreadAndStopAfterFewTimeBudgets() throws Exception {
+        final long budget = 50;
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 40, budget);
+        Grid grid = new Grid(10, 4);
+        player.executeMove(grid);
+        grid = Grid.simulateMove(grid, player.getAiMoveSource(), player.getAiMoveDestination());
+
+        // Threads of the pool are started only once tasks are submitted to it
+        player.setThreadCount(THREADS);
+        assertTrue(player.startPondering(grid));
+        final Thread thread = player.getPonderThread();
+        assertNotNull(thread);
+
+        thread.join(10 * budget + 1000);
+        assertFalse(thread.isAlive());
+        assertEquals(0, player.getPool().getPoolSize());
+
+        // The result is kept until the opponent moves
+        assertTrue(player.isPondering());
+        player.stopPondering();
+        assertFalse(player.isPondering());
+        player.shutdown();
+    }
+
+    @Test
+    void ponderingShouldBeStoppedSafelyWhileSearchTakesItOver() throws Exception {
+        final int depth = 4;
+        final AiPlayer player = createPlayer(PlayerNum.FIRST, depth, 1);
+        final AiPlayer opponent = createPlayer(PlayerNum.SECOND, depth - 1, 1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            playGame(10, 4, (grid, turn) -> {
+                if (turn == PlayerNum.SECOND) {
+                    player.startPondering(grid);
+                    opponent.executeMove(grid);
+                    return opponent;
+                }
+
+                // Pondering is stopped from another thread while the search may be waiting for it
+                final CountDownLatch start = new CountDownLatch(1);
+                final Future<?> stop = executor.submit(() -> {
+                    start.await();
+                    player.stopPondering();
+                    return null;
+                });
+                start.countDown();
+                player.executeMove(grid);
+
+                try {
+                    stop.get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+                assertFalse(player.isPondering());
+                return player;
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void principalVariationSearchShouldChooseTheSameMovesWithFewerNodes(int size, int playerRows, int depth) {
+        final long[] plainNodes = {0};
+        final long[] pvsNodes = {0};
+
+        playGame(size, playerRows, (grid, player) -> {
+            final AiPlayer plain = createPlayer(player, depth, 1);
+            plain.setPrincipalVariationSearchEnabled(false);
+            final AiPlayer pvs = createPlayer(player, depth, 1);
+            // Iterative deepening with a budget that never runs out, so every iteration uses an aspiration window
+            final AiPlayer aspiration = new AiPlayer(player, getOpponent(player), depth, Long.MAX_VALUE / 2000000);
+            aspiration.setTranspositionTableSize(0);
+            aspiration.setLateMoveReductionsEnabled(false);
+            aspiration.setFutilityPruningEnabled(false);
+
+            plain.executeMove(grid);
+            pvs.executeMove(grid);
+            aspiration.executeMove(grid);
+            assertSameMove(plain, pvs);
+            assertSameMove(plain, aspiration);
+
+            // Moves that fail high on the null window are searched again, which is cheap only
+            // when the first search has filled the transposition table
+            final AiPlayer plainWithTable = new AiPlayer(player, getOpponent(player), depth);
+            final AiPlayer pvsWithTable = new AiPlayer(player, getOpponent(player), depth);
+            for (AiPlayer ai : new AiPlayer[]{plainWithTable, pvsWithTable}) {
+                ai.setLateMoveReductionsEnabled(false);
+                ai.setFutilityPruningEnabled(false);
+            }
+            plainWithTable.setPrincipalVariationSearchEnabled(false);
+            plainWithTable.executeMove(grid);
+            pvsWithTable.executeMove(grid);
+            plainNodes[0] += plainWithTable.getStatistics().getNodes();
+            pvsNodes[0] += pvsWithTable.getStatistics().getNodes();
+
+            return plain;
+        });
+
+        assertTrue(pvsNodes[0] < plainNodes[0]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void selectiveSearchShouldChooseLegalMovesWithFewerNodes(int size, int playerRows, int depth) {
+        final long[] fullNodes = {0};
+        final long[] reductionNodes = {0};
+        final long[] futilityNodes = {0};
+        final long[] selectiveNodes = {0};
+        final long[] reducedMoves = {0};
+        final long[] prunedMoves = {0};
+
+        playGame(size, playerRows, (grid, player) -> {
+            final AiPlayer full = new AiPlayer(player, getOpponent(player), depth);
+            full.setLateMoveReductionsEnabled(false);
+            full.setFutilityPruningEnabled(false);
+            final AiPlayer reduction = new AiPlayer(player, getOpponent(player), depth);
+            reduction.setFutilityPruningEnabled(false);
+            final AiPlayer futility = new AiPlayer(player, getOpponent(player), depth);
+            futility.setLateMoveReductionsEnabled(false);
+            final AiPlayer selective = new AiPlayer(player, getOpponent(player), depth);
+
+            full.executeMove(grid);
+            reduction.executeMove(grid);
+            futility.executeMove(grid);
+            selective.executeMove(grid);
+            fullNodes[0] += full.getStatistics().getNodes();
+            reductionNodes[0] += reduction.getStatistics().getNodes();
+            futilityNodes[0] += futility.getStatistics().getNodes();
+            selectiveNodes[0] += selective.getStatistics().getNodes();
+            reducedMoves[0] += selective.getStatistics().getReducedMoves();
+            prunedMoves[0] += selective.getStatistics().getPrunedMoves();
+
+            final ArrayList<Destination> destinations = grid.getMovableEntries(player).get(selective.getAiMoveSource());
+            assertNotNull(destinations);
+            assertTrue(destinations.contains(selective.getAiMoveDestination()));
+
+            // Follow the full search, so all of them search the same positions
+            return full;
+        });
+
+        assertTrue(reducedMoves[0] > 0);
+        assertTrue(prunedMoves[0] > 0);
+        assertTrue(reductionNodes[0] < fullNodes[0]);
+        assertTrue(futilityNodes[0] < fullNodes[0]);
+        assertTrue(selectiveNodes[0] < fullNodes[0]);
+    }
+
+    @Test
+    void selectiveSearchShouldSearchRefutingReducedMovesAgain() {
+        // Advancing the piece at (7, 2) is best, but the king move to (0, 1) looks better whenever
+        // the reply refuting it, searched to a reduced depth late in the order, isn't searched again
+        final Grid grid = new Grid(8, 0);
+        placePieces(grid, "f7,2 s1,4 F6,7");
+        final int depth = 5;
+
+        final AiPlayer full = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth);
+        full.setLateMoveReductionsEnabled(false);
+        full.setFutilityPruningEnabled(false);
+        full.executeMove(grid);
+        assertMove(full, 7, 2, 6, 3);
+
+        final AiPlayer selective = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth);
+        selective.executeMove(grid);
+        assertSameMove(full, selective);
+        assertTrue(selective.getStatistics().getReducedMoves() > 0);
+        assertTrue(selective.getStatistics().getResearches() > 0);
+        assertTrue(selective.getStatistics().getNodes() < full.getStatistics().getNodes());
+    }
+
+    @Test
+    void searchedCapturePathShouldBeMadeOfPathsBetweenTheSameEntries() throws Exception {
+        // Both captures go from (2, 1) to (2, 5), but only the one generated first, over (1, 2) and (1, 4),
+        // lets the piece at (3, 6) capture back
+        final Grid grid = new Grid(8, 0, false, false, true, true);
+        placePieces(grid, "f2,1 s1,2 s3,2 s1,4 s3,4 s3,6 f4,7");
+        final List<GridEntry> captured = Arrays.asList(grid.getEntryByCoords(3, 2), grid.getEntryByCoords(3, 4));
+
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 3);
+        player.executeMove(grid);
+        assertMove(player, 2, 1, 2, 5);
+        assertEquals(captured, player.getAiMoveDestination().getCapturedPieces());
+
+        final AiPlayer background = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 3);
+        background.startSearch(grid, null).get();
+        assertMove(background, 2, 1, 2, 5);
+        assertEquals(captured, background.getAiMoveDestination().getCapturedPieces());
+
+        // The reply is predicted in the position that has been searched
+        assertTrue(player.startPondering(Grid.simulateMove(grid, player.getAiMoveSource(), player.getAiMoveDestination())));
+        player.stopPondering();
+    }
+
+    @ParameterizedTest
+    @MethodSource("gameProvider")
+    void backgroundSearchShouldReportProgressAndChooseTheSameMove(int size, int playerRows, int depth) throws Exception {
+        final Grid grid = new Grid(size, playerRows);
+        final AiPlayer blocking = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth, Long.MAX_VALUE / 2000000);
+        final AiPlayer background = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, depth, Long.MAX_VALUE / 2000000);
+        final List<SearchProgress> progress = new CopyOnWriteArrayList<>();
+
+        blocking.executeMove(grid);
+        final SearchHandle handle = background.startSearch(grid, new SearchListener() {
+            @Override
+            public void onProgress(SearchProgress p) {
+                progress.add(p);
+            }
+        });
+        final Move move = handle.get();
+
+        assertEquals(blocking.getAiMoveSource().getX(), move.getSrcX());
+        assertEquals(blocking.getAiMoveSource().getY(), move.getSrcY());
+        assertSame(blocking.getAiMoveSource(), background.getAiMoveSource());
+        assertEquals(move, handle.getBestMoveSoFar());
+
+        assertEquals(depth, progress.size());
+        for (int i = 0; i < depth; ++i) {
+            final SearchProgress p = progress.get(i);
+            assertEquals(i + 1, p.getDepth());
+            assertFalse(p.getPrincipalVariation().isEmpty());
+            assertTrue(p.getPrincipalVariation().size() <= p.getDepth());
+            if (i > 0) assertTrue(p.getNodes() >= progress.get(i - 1).getNodes());
+        }
+        assertEquals(move, progress.get(depth - 1).getPrincipalVariation().get(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cancelledSearchProvider")
+    void cancelledSearchShouldStopPromptly(int threads, ParallelMode mode, boolean waitForIteration) throws Exception {
+        final Grid grid = new Grid(10, 4);
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 40, Long.MAX_VALUE / 2000000);
+        player.setThreadCount(threads);
+        player.setParallelMode(mode);
+
+        final CountDownLatch firstIteration = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final SearchHandle handle = player.startSearch(grid, new SearchListener() {
+            @Override
+            public void onProgress(SearchProgress progress) {
+                firstIteration.countDown();
+            }
+
+            @Override
+            public void onFinished(Move move) {
+                finished.countDown();
+            }
+        });
+
+        if (waitForIteration) {
+            assertTrue(firstIteration.await(10, TimeUnit.SECONDS));
+            assertNotNull(handle.getBestMoveSoFar());
+        }
+
+        assertTrue(handle.cancel(true));
+        assertTrue(handle.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(handle.isCancelled());
+        assertEquals(1, finished.getCount());
+    }
+
+    @Test
+    void shutdownShouldStopSearchAndReleaseThreads() throws Exception {
+        final Grid grid = new Grid(10, 4);
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 40, Long.MAX_VALUE / 2000000);
+        player.setThreadCount(THREADS);
+
+        final CountDownLatch firstIteration = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final SearchHandle handle = player.startSearch(grid, new SearchListener() {
+            @Override
+            public void onProgress(SearchProgress progress) {
+                firstIteration.countDown();
+            }
+
+            @Override
+            public void onFinished(Move move) {
+                finished.countDown();
+            }
+        });
+        assertTrue(firstIteration.await(10, TimeUnit.SECONDS));
+
+        final ForkJoinPool pool = player.getPool();
+        assertNotNull(pool);
+
+        // The search has finished by the time it returns, without reporting a move
+        player.shutdown();
+        assertTrue(handle.awaitTermination(0, TimeUnit.SECONDS));
+        assertEquals(1, finished.getCount());
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertNull(player.getPool());
+
+        // Threads are started again by the next search
+        final CountDownLatch restarted = new CountDownLatch(1);
+        final SearchHandle restartedHandle = player.startSearch(grid, new SearchListener() {
+            @Override
+            public void onProgress(SearchProgress progress) {
+                restarted.countDown();
+            }
+        });
+        assertTrue(restarted.await(10, TimeUnit.SECONDS));
+        assertNotNull(player.getPool());
+        assertNotSame(pool, player.getPool());
+
+        player.shutdown();
+        assertTrue(restartedHandle.awaitTermination(0, TimeUnit.SECONDS));
+    }
+
+    /**
+     * @return Stream of Arguments (int size, int playerRows, int depth)
+     */
+    private static Stream<Arguments> gameProvider() {
+        return Stream.of(
+                Arguments.of(8, 3, 5),
+                Arguments.of(10, 4, 4)
+        );
+    }
+
+    /**
+     * @return Stream of Arguments (int size, int playerRows, String pieces, int depth)
+     */
+    private static Stream<Arguments> minimaxProvider() {
+        return Stream.of(
+                Arguments.of(8, 3, "", 5),
+                Arguments.of(10, 4, "", 4),
+                Arguments.of(8, 0, "f1,0 f3,0 f2,1 f3,2 F7,2 s1,4 s7,6 s0,7", 5),
+                Arguments.of(8, 0, "f1,0 f2,1 f6,1 f1,2 f3,2 s5,2 f4,3 s1,4 s6,5 s0,7", 5),
+                Arguments.of(8, 0, "S3,2 F0,3 s2,3", 6),
+                Arguments.of(10, 0, "F0,9 f3,2 f4,3 s2,7 s5,6 S9,0", 5)
+        );
+    }
+
+    /**
+     * @return Stream of Arguments (int threads, ParallelMode mode)
+     */
+    private static Stream<Arguments> timeBudgetProvider() {
+        return Stream.of(
+                Arguments.of(1, ParallelMode.ROOT_SPLIT),
+                Arguments.of(2, ParallelMode.ROOT_SPLIT),
+                Arguments.of(2, ParallelMode.LAZY_SMP)
+        );
+    }
+
+    /**
+     * @return Stream of Arguments (int threads, ParallelMode mode, boolean waitForIteration)
+     */
+    private static Stream<Arguments> cancelledSearchProvider() {
+        return Stream.of(
+                Arguments.of(1, ParallelMode.ROOT_SPLIT, false),
+                Arguments.of(1, ParallelMode.ROOT_SPLIT, true),
+                Arguments.of(2, ParallelMode.ROOT_SPLIT, true),
+                Arguments.of(2, ParallelMode.LAZY_SMP, true)
+        );
+    }
+}
@@ -0,0 +1,243 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.GameEnd;
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PieceType;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndgameTablebaseTest {
+    private static final int POSITIONS = 5000;
+
+    private static PlayerNum getOpponent(PlayerNum player) {
+        return player == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+    }
+
+    /**
+     * Put two kings of {@code strong} player and a king of the other one on the grid.
+     */
+    private static void placeKings(Grid grid, PlayerNum strong, int first, int second, int weak) {
+        grid.setPiece(first, strong, PieceType.KING);
+        grid.setPiece(second, strong, PieceType.KING);
+        grid.setPiece(weak, getOpponent(strong), PieceType.KING);
+    }
+
+    private static void clearKings(Grid grid, int first, int second, int weak) {
+        grid.setPiece(first, PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+        grid.setPiece(second, PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+        grid.setPiece(weak, PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+    }
+
+    /**
+     * Get the score of the position for {@code player} from the scores of positions after its moves,
+     * using the tablebase only for positions where the game isn't over.
+     */
+    private static int getScoreOfMoves(EndgameTablebase tablebase, Grid grid, PlayerNum player) {
+        final MoveList moves = new MoveList();
+        final MoveUndo undo = new MoveUndo();
+        grid.generateMoves(player, moves);
+
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); ++i) {
+            grid.makeMove(moves, i, undo);
+
+            final GameEnd end = grid.isGameOver();
+            int score;
+            if (end == null) score = -tablebase.probe(grid, getOpponent(player));
+            else if (end.getWinner() == PlayerNum.NOPLAYER) score = 0;
+            else score = end.getWinner() == player ? EndgameTablebase.WIN_SCORE : -EndgameTablebase.WIN_SCORE;
+
+            // Distances are counted to the next capture, which resets the king-only move counter, and
+            // every king move without capture takes the winner a move further from it
+            if (undo.getCapturedCount() > 0) score = Integer.signum(score) * EndgameTablebase.WIN_SCORE;
+            else score -= Integer.signum(score);
+
+            grid.unmakeMove(undo);
+            best = Math.max(best, score);
+        }
+
+        return best;
+    }
+
+    @ParameterizedTest
+    @MethodSource("tablebaseProvider")
+    void tablebaseShouldAgreeWithScoresOfMoves(int size, boolean flyingKing, boolean mandatoryCapture,
+                                               @TempDir Path directory) throws IOException {
+        final File file = directory.resolve("endgame.tb").toFile();
+        new EndgameTablebaseGenerator(size, flyingKing, mandatoryCapture, 3).generate().save(file);
+        final EndgameTablebase tablebase = EndgameTablebase.load(file);
+
+        final Grid grid = new Grid(size, 0, false, true, flyingKing, mandatoryCapture);
+        assertTrue(tablebase.supports(grid.toPosition()));
+
+        final int squares = grid.getBoard().getSquareCount();
+        int wins = 0;
+        for (int first = 0; first < squares; ++first) {
+            for (int second = first + 1; second < squares; ++second) {
+                for (int weak = 0; weak < squares; ++weak) {
+                    if (weak == first || weak == second) continue;
+
+                    for (PlayerNum strong : new PlayerNum[]{PlayerNum.FIRST, PlayerNum.SECOND}) {
+                        placeKings(grid, strong, first, second, weak);
+                        assertTrue(tablebase.contains(grid.toPosition()));
+
+                        if (grid.isGameOver() == null) {
+                            for (PlayerNum player : new PlayerNum[]{PlayerNum.FIRST, PlayerNum.SECOND}) {
+                                final int score = tablebase.probe(grid, player);
+                                assertEquals(getScoreOfMoves(tablebase, grid, player), score);
+                                if (score > 0) ++wins;
+                            }
+                        }
+
+                        clearKings(grid, first, second, weak);
+                    }
+                }
+            }
+        }
+
+        assertTrue(wins > 0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("capturesProvider")
+    void tablebaseShouldAgreeWithScoresOfCaptures(int size, int strong, int weak) {
+        final EndgameTablebase tablebase = new EndgameTablebaseGenerator(size, true, true, strong + weak).generate();
+        final Grid grid = new Grid(size, 0);
+        final Random random = new Random(size);
+
+        final List<Integer> squares = new ArrayList<>();
+        for (int square = 0; square < grid.getBoard().getSquareCount(); ++square) {
+            squares.add(square);
+        }
+
+        int captures = 0;
+        for (int i = 0; i < POSITIONS; ++i) {
+            Collections.shuffle(squares, random);
+            for (int k = 0; k < strong + weak; ++k) {
+                grid.setPiece(squares.get(k), k < strong ? PlayerNum.FIRST : PlayerNum.SECOND, PieceType.KING);
+            }
+
+            if (grid.isGameOver() == null) {
+                for (PlayerNum player : new PlayerNum[]{PlayerNum.FIRST, PlayerNum.SECOND}) {
+                    assertEquals(getScoreOfMoves(tablebase, grid, player), tablebase.probe(grid, player));
+
+                    final MoveList moves = new MoveList();
+                    grid.generateMoves(player, moves);
+                    if (moves.size() > 0 && MoveList.getCaptureCount(moves.get(0)) > 0) ++captures;
+                }
+            }
+
+            for (int k = 0; k < strong + weak; ++k) {
+                grid.setPiece(squares.get(k), PlayerNum.NOPLAYER, PieceType.UNASSIGNED);
+            }
+        }
+
+        assertTrue(captures > 0);
+    }
+
+    @Test
+    void wonPositionShouldBeDrawnWhenKingOnlyMovesRunOut() {
+        final int entry = EndgameTablebase.toEntry(EndgameTablebase.WIN, 5);
+        assertEquals(EndgameTablebase.WIN_SCORE - 5, EndgameTablebase.getScore(entry, 0));
+        assertEquals(EndgameTablebase.WIN_SCORE - 5, EndgameTablebase.getScore(entry, Grid.KING_ONLY_MOVE_LIMIT - 6));
+        assertEquals(0, EndgameTablebase.getScore(entry, Grid.KING_ONLY_MOVE_LIMIT - 5));
+    }
+
+    @ParameterizedTest
+    @MethodSource("endgameProvider")
+    void aiShouldPlayEndgameInTablebasePerfectly(int size) {
+        final EndgameTablebase tablebase = new EndgameTablebaseGenerator(size, true, true, 3).generate();
+        Grid grid = new Grid(size, 0);
+
+        // Find the won position that takes the longest to win
+        final int squares = grid.getBoard().getSquareCount();
+        int[] longest = null;
+        int longestScore = Integer.MAX_VALUE;
+        for (int first = 0; first < squares; ++first) {
+            for (int second = first + 1; second < squares; ++second) {
+                for (int weak = 0; weak < squares; ++weak) {
+                    if (weak == first || weak == second) continue;
+
+                    placeKings(grid, PlayerNum.FIRST, first, second, weak);
+                    final int score = tablebase.probe(grid, PlayerNum.FIRST);
+                    if (grid.isGameOver() == null && score > 0 && score < longestScore) {
+                        longest = new int[]{first, second, weak};
+                        longestScore = score;
+                    }
+                    clearKings(grid, first, second, weak);
+                }
+            }
+        }
+
+        assertNotNull(longest);
+        placeKings(grid, PlayerNum.FIRST, longest[0], longest[1], longest[2]);
+
+        final AiPlayer[] players = {
+                new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, 6),
+                new AiPlayer(PlayerNum.SECOND, PlayerNum.FIRST, 6)
+        };
+        for (AiPlayer player : players) {
+            player.setEndgameTablebase(tablebase);
+        }
+
+        // The winner takes the shortest way and the loser the longest one
+        PlayerNum turn = PlayerNum.FIRST;
+        int kingOnlyMoves = 0;
+        while (grid.isGameOver() == null) {
+            final AiPlayer player = players[turn == PlayerNum.FIRST ? 0 : 1];
+            player.executeMove(grid);
+            assertEquals(1, player.getCompletedDepth());
+            assertTrue(player.getStatistics().getTablebaseHits() > 0);
+
+            if (!player.getAiMoveDestination().isCapture()) ++kingOnlyMoves;
+            grid = Grid.simulateMove(grid, player.getAiMoveSource(), player.getAiMoveDestination());
+            turn = getOpponent(turn);
+        }
+
+        assertEquals(PlayerNum.FIRST, grid.isGameOver().getWinner());
+        assertEquals(EndgameTablebase.WIN_SCORE - longestScore, kingOnlyMoves);
+    }
+
+    static Stream<Arguments> tablebaseProvider() {
+        return Stream.of(
+                Arguments.of(8, true, true),
+                Arguments.of(8, true, false),
+                Arguments.of(8, false, true),
+                Arguments.of(10, true, true)
+        );
+    }
+
+    static Stream<Arguments> capturesProvider() {
+        return Stream.of(
+                Arguments.of(8, 3, 1),
+                Arguments.of(8, 2, 2)
+        );
+    }
+
+    static Stream<Arguments> endgameProvider() {
+        return Stream.of(
+                Arguments.of(8),
+                Arguments.of(10)
+        );
+    }
+}
@@ -0,0 +1,93 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveOrderingTest {
+
+    /**
+     * Generate moves of the first player, where the king at (0, 9) captures along four paths
+     * to each of (8, 1) and (9, 0).
+     */
+    private static MoveList generateSharedCodes() {
+        final Grid grid = new Grid(10, 0);
+        AiPlayerTest.placePieces(grid, "F0,9 s2,7 s5,8 s7,2");
+
+        final MoveList moves = new MoveList();
+        grid.generateMoves(PlayerNum.FIRST, moves);
+        return moves;
+    }
+
+    private static int countCode(MoveList moves, int code) {
+        int count = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            if (MoveList.getCode(moves.get(i)) == code) ++count;
+        }
+
+        return count;
+    }
+
+    private static void assertPermutation(int[] order, int size) {
+        final int[] sorted = Arrays.copyOf(order, size);
+        Arrays.sort(sorted);
+        for (int i = 0; i < size; ++i) {
+            assertEquals(i, sorted[i]);
+        }
+    }
+
+    @Test
+    void hashMoveShouldGoFirstOnceWhenPathsShareItsCode() {
+        final MoveList moves = generateSharedCodes();
+        final int hashMove = MoveList.getCode(moves.get(1));
+        assertTrue(countCode(moves, hashMove) > 1);
+
+        // Indices left over from a bigger list mustn't be searched
+        final int[] order = new int[moves.size() + 8];
+        Arrays.fill(order, 100);
+        MoveOrdering.orderHashMoveFirst(moves, order, hashMove);
+
+        int first = 0;
+        while (MoveList.getCode(moves.get(first)) != hashMove) ++first;
+        assertEquals(first, order[0]);
+        assertPermutation(order, moves.size());
+        for (int i = 2; i < moves.size(); ++i) {
+            assertTrue(order[i] > order[i - 1]);
+        }
+    }
+
+    @Test
+    void movesShouldKeepOrderOfGenerationWithoutHashMove() {
+        final MoveList moves = generateSharedCodes();
+        final int[] order = new int[moves.size()];
+        MoveOrdering.orderHashMoveFirst(moves, order, TranspositionTable.NO_MOVE);
+
+        final int[] expected = new int[moves.size()];
+        for (int i = 0; i < expected.length; ++i) expected[i] = i;
+        assertArrayEquals(expected, order);
+    }
+
+    @Test
+    void allPathsSharingHashMoveCodeShouldBeOrderedFirst() {
+        final MoveList moves = generateSharedCodes();
+        final int hashMove = MoveList.getCode(moves.get(moves.size() - 1));
+        final int count = countCode(moves, hashMove);
+
+        final int[] order = new int[moves.size()];
+        final MoveOrdering ordering = new MoveOrdering();
+        ordering.order(moves, order, new int[moves.size()], hashMove, 0);
+
+        assertPermutation(order, moves.size());
+        for (int i = 0; i < count; ++i) {
+            assertEquals(hashMove, MoveList.getCode(moves.get(order[i])));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cyberbot.checkers.game.ai;
+
+import com.cyberbot.checkers.game.logic.Grid;
+import com.cyberbot.checkers.game.logic.MoveList;
+import com.cyberbot.checkers.game.logic.MoveUndo;
+import com.cyberbot.checkers.game.logic.PlayerNum;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpeningBookTest {
+    private static final int DEPTH = 4;
+    private static final int PLIES = 3;
+
+    private static int getCode(Grid grid, AiPlayer player) {
+        return grid.getBoard().getSquare(player.getAiMoveSource().getX(), player.getAiMoveSource().getY()) << 16
+                | grid.getBoard().getSquare(player.getAiMoveDestination().getDestinationEntry().getX(),
+                player.getAiMoveDestination().getDestinationEntry().getY());
+    }
+
+    /**
+     * Make the move with given code, which has to be legal.
+     */
+    private static void playMove(Grid grid, PlayerNum player, int code) {
+        final MoveList moves = new MoveList();
+        grid.generateMoves(player, moves);
+        for (int i = 0; i < moves.size(); ++i) {
+            if (MoveList.getCode(moves.get(i)) == code) {
+                grid.makeMove(moves, i, new MoveUndo());
+                return;
+            }
+        }
+
+        throw new AssertionError("Move " + code + " is illegal");
+    }
+
+    @ParameterizedTest
+    @MethodSource("bookProvider")
+    void bookShouldHoldMovesOfSearch(int size, int playerRows, @TempDir Path directory) throws IOException {
+        final OpeningBookGenerator generator = new OpeningBookGenerator(size, false, true, true, true, DEPTH, PLIES);
+        generator.addOpenings(playerRows);
+
+        final File file = directory.resolve("opening.book").toFile();
+        generator.build().save(file);
+        final OpeningBook book = OpeningBook.load(file);
+
+        final Grid grid = new Grid(size, playerRows);
+        assertTrue(book.supports(grid.toPosition()));
+
+        // Every reply to every first move of the second player is in the book
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, DEPTH);
+        final MoveList moves = new MoveList();
+        final MoveUndo undo = new MoveUndo();
+        grid.generateMoves(PlayerNum.SECOND, moves);
+        for (int i = 0; i < moves.size(); ++i) {
+            grid.makeMove(moves, i, undo);
+
+            final int code = book.probe(grid.toPosition(), PlayerNum.FIRST);
+            assertNotEquals(TranspositionTable.NO_MOVE, code);
+
+            player.executeMove(grid);
+            assertEquals(getCode(grid, player), code);
+
+            grid.unmakeMove(undo);
+        }
+
+        // Positions beyond the book aren't found
+        grid.generateMoves(PlayerNum.FIRST, moves);
+        grid.makeMove(moves, 0, undo);
+        final Grid reply = new Grid(grid.toPosition());
+        reply.generateMoves(PlayerNum.SECOND, moves);
+        reply.makeMove(moves, 0, undo);
+        reply.generateMoves(PlayerNum.FIRST, moves);
+        reply.makeMove(moves, 0, undo);
+        assertEquals(TranspositionTable.NO_MOVE, book.probe(reply.toPosition(), PlayerNum.SECOND));
+    }
+
+    @Test
+    void aiShouldPlayBookMovesWithoutSearch() {
+        final OpeningBookGenerator generator = new OpeningBookGenerator(8, false, true, true, true, DEPTH, PLIES);
+        generator.addOpenings(3);
+        final OpeningBook book = generator.build();
+
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, DEPTH);
+        player.setOpeningBook(book);
+
+        final Grid grid = new Grid(8, 3);
+        player.executeMove(grid);
+        assertTrue(player.isBookMove());
+        assertEquals(0, player.getCompletedDepth());
+        assertEquals(0, player.getStatistics().getNodes());
+        assertEquals(book.probe(grid.toPosition(), PlayerNum.FIRST), getCode(grid, player));
+
+        // Once the game leaves the book, the AI searches again
+        PlayerNum turn = PlayerNum.SECOND;
+        for (int ply = 0; ply < PLIES; ++ply) {
+            playMove(grid, turn, book.probe(grid.toPosition(), turn));
+            turn = turn == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        }
+
+        player.executeMove(grid);
+        assertFalse(player.isBookMove());
+        assertEquals(DEPTH, player.getCompletedDepth());
+    }
+
+    @Test
+    void bookShouldBeIgnoredForOtherRules() {
+        final OpeningBookGenerator generator = new OpeningBookGenerator(8, false, true, true, true, DEPTH, PLIES);
+        generator.addOpenings(3);
+        final OpeningBook book = generator.build();
+
+        final Grid grid = new Grid(8, 3, false, true, false, true);
+        assertFalse(book.supports(grid.toPosition()));
+        assertFalse(book.supports(new Grid(10, 3).toPosition()));
+
+        final AiPlayer player = new AiPlayer(PlayerNum.FIRST, PlayerNum.SECOND, DEPTH);
+        player.setOpeningBook(book);
+        player.executeMove(grid);
+        assertFalse(player.isBookMove());
+        assertTrue(player.getStatistics().getNodes() > 0);
+    }
+
+    static Stream<Arguments> bookProvider() {
+        return Stream.of(
+                Arguments.of(8, 3),
+                Arguments.of(10, 4)
+        );
+    }
+}
@@ -0,0 +1,113 @@
+package com.cyberbot.checkers.game.ai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TranspositionTableTest {
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(TranspositionTable.ENTRY_SIZE - 1));
+    }
+
+    @Test
+    void shouldRoundCapacityDownToPowerOfTwo() {
+        TranspositionTable table = new TranspositionTable(100 * TranspositionTable.ENTRY_SIZE);
+        assertEquals(64, table.getCapacity());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, -1, 4321, -4321, Integer.MAX_VALUE - 1, Integer.MIN_VALUE + 1})
+    void shouldStoreScores(int score) {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42, 3, TranspositionTable.BOUND_LOWER, score, 7 << 16 | 12);
+
+        final long entry = table.probe(42);
+        assertNotEquals(0, entry);
+        assertEquals(score, TranspositionTable.getScore(entry));
+        assertEquals(7 << 16 | 12, TranspositionTable.getMove(entry));
+        assertEquals(3, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+    }
+
+    @Test
+    void shouldNotFindOtherPositionInTheSameSlot() {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42, 3, TranspositionTable.BOUND_EXACT, 10, TranspositionTable.NO_MOVE);
+
+        assertEquals(0, table.probe(42 + (1L << 40)));
+        assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getMove(table.probe(42)));
+    }
+
+    @Test
+    void shouldKeepDeeperEntryOfTheSameSearch() {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42, 5, TranspositionTable.BOUND_EXACT, 10, 1);
+        table.store(42, 2, TranspositionTable.BOUND_EXACT, 20, 2);
+        assertEquals(10, TranspositionTable.getScore(table.probe(42)));
+
+        table.newSearch();
+        table.store(42, 2, TranspositionTable.BOUND_EXACT, 20, 2);
+        assertEquals(20, TranspositionTable.getScore(table.probe(42)));
+    }
+
+    @Test
+    void shouldKeepOldMoveWhenNewOneIsMissing() {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42, 2, TranspositionTable.BOUND_EXACT, 10, 3 << 16 | 4);
+        table.store(42, 3, TranspositionTable.BOUND_UPPER, 5, TranspositionTable.NO_MOVE);
+
+        assertEquals(3 << 16 | 4, TranspositionTable.getMove(table.probe(42)));
+    }
+
+    @Test
+    void shouldClampDepthAndKeepMovesOfLargeBoards() {
+        TranspositionTable table = new TranspositionTable(1024);
+        final int move = 4000 << 16 | 3999;
+        table.store(42, 1000, TranspositionTable.BOUND_UPPER, -7, move);
+
+        final long entry = table.probe(42);
+        assertEquals(0x7F, TranspositionTable.getDepth(entry));
+        assertEquals(move, TranspositionTable.getMove(entry));
+        assertEquals(-7, TranspositionTable.getScore(entry));
+    }
+
+    @Test
+    void shouldNotFindEntryTornByConcurrentWrite() throws ReflectiveOperationException {
+        TranspositionTable table = new TranspositionTable(1024);
+        final long other = 42 + (1L << 40);
+        final Field field = TranspositionTable.class.getDeclaredField("entries");
+        field.setAccessible(true);
+        final long[] entries = (long[]) field.get(table);
+
+        // Both positions share the slot, which holds the key word followed by the data word
+        table.store(other, 3, TranspositionTable.BOUND_EXACT, 20, 2);
+        int slot = 0;
+        while (entries[slot + 1] == 0) slot += 2;
+        final long otherData = entries[slot + 1];
+
+        // Another thread has overwritten the data word between reads of the key and the data
+        table.store(42, 3, TranspositionTable.BOUND_EXACT, 10, 1);
+        assertNotEquals(0, table.probe(42));
+        entries[slot + 1] = otherData;
+
+        assertEquals(0, table.probe(42));
+        assertEquals(0, table.probe(other));
+    }
+
+    @Test
+    void shouldRemoveAllEntriesWhenCleared() {
+        TranspositionTable table = new TranspositionTable(1024);
+        table.store(42, 2, TranspositionTable.BOUND_EXACT, 10, 1);
+        table.clear();
+
+        assertEquals(0, table.probe(42));
+    }
+}
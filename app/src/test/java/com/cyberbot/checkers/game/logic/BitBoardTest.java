@@ -0,0 +1,75 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitBoardTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 5, 8, 9, 10, 12, 15})
+    void shouldMapEveryLegalEntryToUniqueSquare(int size) {
+        BitBoard board = new BitBoard(size);
+        boolean[] used = new boolean[board.getSquareCount()];
+
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                final int square = board.getSquare(x, y);
+                if (!new GridEntry(x, y).legal()) {
+                    assertEquals(-1, square);
+                    continue;
+                }
+
+                assertFalse(used[square]);
+                used[square] = true;
+                assertEquals(x, board.getSquareX(square));
+                assertEquals(y, board.getSquareY(square));
+            }
+        }
+
+        for (boolean u : used) {
+            assertTrue(u);
+        }
+    }
+
+    @Test
+    void shouldSetAndClearPiecesAcrossWords() {
+        BitBoard board = new BitBoard(12);
+        board.setPiece(3, PlayerNum.FIRST, PieceType.ORDINARY);
+        board.setPiece(64, PlayerNum.SECOND, PieceType.KING);
+        board.setPiece(71, PlayerNum.SECOND, PieceType.ORDINARY);
+
+        assertEquals(PlayerNum.FIRST, board.getPlayer(3));
+        assertEquals(PieceType.KING, board.getPieceType(64));
+        assertEquals(2, board.countPieces(PlayerNum.SECOND));
+        assertEquals(1, board.countKings(PlayerNum.SECOND));
+        assertEquals(64, board.nextPiece(PlayerNum.SECOND, 0));
+        assertEquals(71, board.nextPiece(PlayerNum.SECOND, 65));
+        assertEquals(-1, board.nextPiece(PlayerNum.SECOND, 72));
+
+        board.clearPiece(64);
+        assertTrue(board.isEmpty(64));
+        assertEquals(0, board.countKings(PlayerNum.SECOND));
+    }
+
+    @Test
+    void shouldMirrorGridPieces() {
+        Grid grid = new Grid(8, 3);
+        BitBoard board = grid.getBoard();
+
+        for (GridEntry entry : grid) {
+            if (!entry.legal()) continue;
+
+            final int square = board.getSquare(entry.getX(), entry.getY());
+            assertEquals(entry.getPlayer(), board.getPlayer(square));
+            assertEquals(entry.getPieceType(), board.getPieceType(square));
+        }
+
+        assertEquals(12, board.countPieces(PlayerNum.FIRST));
+        assertEquals(12, board.countPieces(PlayerNum.SECOND));
+    }
+}
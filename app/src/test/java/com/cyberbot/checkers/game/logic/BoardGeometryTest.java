@@ -0,0 +1,39 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BoardGeometryTest {
+    private static final int[] DIRECTION_X = {-1, -1, 1, 1};
+    private static final int[] DIRECTION_Y = {-1, 1, -1, 1};
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 5, 8, 9, 10, 12, 15})
+    void raysShouldFollowDiagonalsToTheEdge(int size) {
+        final BitBoard board = new BitBoard(size);
+        final BoardGeometry geometry = BoardGeometry.forSize(size);
+        assertSame(geometry, BoardGeometry.forSize(size));
+
+        for (int square = 0; square < board.getSquareCount(); ++square) {
+            assertEquals(board.getSquareX(square), geometry.getSquareX(square));
+            assertEquals(board.getSquareY(square), geometry.getSquareY(square));
+
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; ++d) {
+                int x = board.getSquareX(square) + DIRECTION_X[d];
+                int y = board.getSquareY(square) + DIRECTION_Y[d];
+                assertEquals(board.getSquare(x, y), geometry.getNeighbor(square, d));
+                assertEquals(DIRECTION_Y[d] > 0, BoardGeometry.isTowardsHigherY(d));
+
+                for (int i = geometry.getRayStart(square, d); i < geometry.getRayEnd(square, d); ++i) {
+                    assertEquals(board.getSquare(x, y), geometry.getRaySquare(i));
+                    x += DIRECTION_X[d];
+                    y += DIRECTION_Y[d];
+                }
+                assertEquals(-1, board.getSquare(x, y));
+            }
+        }
+    }
+}
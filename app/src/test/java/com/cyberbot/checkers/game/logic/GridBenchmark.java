@@ -0,0 +1,107 @@
+package com.cyberbot.checkers.game.logic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Measures how move generation and entry lookups scale with the board size. Excluded from
+ * regular test runs, use {@code ./gradlew testDebugUnitTest -Pbenchmark} to run it.
+ */
+@Tag("benchmark")
+class GridBenchmark {
+    private static final int[] SIZES = {8, 10, 12, 16, 20, 24};
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 50;
+
+    /**
+     * Lookup the way {@link Grid#getEntryByCoords(int, int)} used to do it, as a point of reference.
+     */
+    private static GridEntry linearLookup(Grid grid, int x, int y) {
+        for (GridEntry e : grid) {
+            if (e.getX() == x && e.getY() == y) return e;
+        }
+
+        throw new RuntimeException("Entry (" + x + ", " + y + ") not found in Grid");
+    }
+
+    private static long median(long[] samples) {
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * Measure {@link ReferenceMoveGenerator}, which generates moves the way {@link Grid} used to,
+     * as a point of reference.
+     */
+    private static long measureReferenceMoveGeneration(Grid grid) {
+        final ReferenceMoveGenerator generator = new ReferenceMoveGenerator(grid);
+
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; ++i) {
+            final long start = System.nanoTime();
+            assertFalse(generator.generate(PlayerNum.FIRST).isEmpty());
+            assertFalse(generator.generate(PlayerNum.SECOND).isEmpty());
+            final long time = System.nanoTime() - start;
+
+            if (i >= WARMUP_ROUNDS) samples[i - WARMUP_ROUNDS] = time;
+        }
+
+        return median(samples);
+    }
+
+    private static long measurePackedMoveGeneration(Grid grid) {
+        final MoveList moves = new MoveList();
+
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; ++i) {
+            final long start = System.nanoTime();
+            assertFalse(grid.generateMoves(PlayerNum.FIRST, moves) == 0);
+            assertFalse(grid.generateMoves(PlayerNum.SECOND, moves) == 0);
+            final long time = System.nanoTime() - start;
+
+            if (i >= WARMUP_ROUNDS) samples[i - WARMUP_ROUNDS] = time;
+        }
+
+        return median(samples);
+    }
+
+    private static long measureLookup(Grid grid, boolean linear) {
+        final int size = grid.getSize();
+
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; ++i) {
+            final long start = System.nanoTime();
+            for (int y = 0; y < size; ++y) {
+                for (int x = 0; x < size; ++x) {
+                    if (linear) linearLookup(grid, x, y);
+                    else grid.getEntryByCoords(x, y);
+                }
+            }
+            final long time = System.nanoTime() - start;
+
+            if (i >= WARMUP_ROUNDS) samples[i - WARMUP_ROUNDS] = time;
+        }
+
+        return median(samples);
+    }
+
+    @Test
+    void moveGenerationScaling() {
+        System.out.println("size | reference move generation [us] | packed move generation [us] | all lookups, linear [us] | all lookups, indexed [us]");
+        for (int size : SIZES) {
+            Grid grid = new Grid(size, size / 2 - 1);
+
+            System.out.printf("%4d | %31.1f | %27.1f | %24.1f | %25.1f%n",
+                    size,
+                    measureReferenceMoveGeneration(grid) / 1000.0,
+                    measurePackedMoveGeneration(grid) / 1000.0,
+                    measureLookup(grid, true) / 1000.0,
+                    measureLookup(grid, false) / 1000.0
+            );
+        }
+    }
+}
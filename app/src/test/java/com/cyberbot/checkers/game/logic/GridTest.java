@@ -6,10 +6,21 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -153,9 +164,432 @@ class GridTest {
         assertTrue(grid.destinationAllowed(srcEntry, dstEntry));
     }
 
+    @ParameterizedTest
+    @MethodSource("rulesProvider")
+    void generatedMovesShouldMatchMovableEntries(
+            int size, int playerRows, boolean canMoveBackwards, boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture) {
+        Grid grid = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+        BitBoard board = grid.getBoard();
+        MoveList moves = new MoveList();
+        Random random = new Random(size);
+        PlayerNum turn = PlayerNum.SECOND;
+
+        for (int ply = 0; ply < 150 && grid.isGameOver() == null; ++ply) {
+            final HashMap<GridEntry, ArrayList<Destination>> movableEntries = grid.getMovableEntries(turn, false);
+            int destinationCount = 0;
+            for (ArrayList<Destination> destinations : movableEntries.values()) {
+                destinationCount += destinations.size();
+            }
+
+            assertEquals(destinationCount, grid.generateMoves(turn, moves));
+            assertEquals(!moves.isEmpty(), grid.hasAnyLegalMove(turn));
+
+            for (int i = 0; i < moves.size(); ++i) {
+                final long move = moves.get(i);
+                final int src = MoveList.getSource(move);
+                final int dst = MoveList.getDestination(move);
+                final GridEntry srcEntry = grid.getEntryByCoords(board.getSquareX(src), board.getSquareY(src));
+
+                final ArrayList<Destination> destinations = movableEntries.get(srcEntry);
+                assertNotNull(destinations);
+
+                Destination destination = null;
+                for (Destination candidate : destinations) {
+                    if (board.getSquare(candidate.getDestinationEntry().getX(), candidate.getDestinationEntry().getY()) == dst
+                            && capturesMatch(board, moves, i, candidate)) {
+                        destination = candidate;
+                    }
+                }
+                assertNotNull(destination);
+
+                // The move at the index is found among capture paths between the same entries
+                final Destination indexed = grid.getDestination(turn, i);
+                assertNotNull(indexed);
+                assertEquals(dst, board.getSquare(indexed.getDestinationEntry().getX(), indexed.getDestinationEntry().getY()));
+                assertTrue(capturesMatch(board, moves, i, indexed));
+
+                // Both ways of making the move have to give the same position
+                final MoveUndo undo = new MoveUndo();
+                final Grid expected = Grid.simulateMove(grid, srcEntry, destination);
+                grid.makeMove(moves, i, undo);
+                assertEquals(expected.getHash(), grid.getHash());
+                assertEquals(MoveList.isPromotion(move), undo.isPromotion());
+                for (int square = 0; square < board.getSquareCount(); ++square) {
+                    assertEquals(expected.getBoard().getPlayer(square), board.getPlayer(square));
+                    assertEquals(expected.getBoard().getPieceType(square), board.getPieceType(square));
+                }
+                assertIncrementalStateMatchesBoard(grid);
+                assertIncrementalStateMatchesBoard(expected);
+                grid.unmakeMove(undo);
+                assertIncrementalStateMatchesBoard(grid);
+            }
+
+            if (moves.isEmpty()) break;
+
+            grid.makeMove(moves, random.nextInt(moves.size()), new MoveUndo());
+            turn = turn == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("rulesProvider")
+    void generatedMovesShouldMatchReferenceGenerator(
+            int size, int playerRows, boolean canMoveBackwards, boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture) {
+        MoveList moves = new MoveList();
+        Random random = new Random(size);
+
+        // Movable entries are built from generated moves, so only the old generator can tell if they are right
+        for (int game = 0; game < 20; ++game) {
+            Grid grid = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+            PlayerNum turn = game % 2 == 0 ? PlayerNum.FIRST : PlayerNum.SECOND;
+
+            for (int ply = 0; ply < 200 && grid.isGameOver() == null; ++ply) {
+                grid.generateMoves(turn, moves);
+                assertEquals(new ReferenceMoveGenerator(grid).generate(turn), ReferenceMoveGenerator.format(grid, moves));
+                if (moves.isEmpty()) break;
+
+                grid.makeMove(moves, random.nextInt(moves.size()), new MoveUndo());
+                turn = turn == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("handWrittenMovesProvider")
+    void generatedMovesShouldMatchHandWrittenMoves(
+            int size, boolean canMoveBackwards, boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture,
+            String pieces, String[] expected) {
+        Grid grid = new Grid(size, 0, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+        placePieces(grid, pieces);
+
+        MoveList moves = new MoveList();
+        grid.generateMoves(PlayerNum.FIRST, moves);
+        assertEquals(Arrays.asList(expected), ReferenceMoveGenerator.format(grid, moves));
+        assertEquals(Arrays.asList(expected), new ReferenceMoveGenerator(grid).generate(PlayerNum.FIRST));
+    }
+
+    @ParameterizedTest
+    @MethodSource("longestCaptureProvider")
+    void onlyLongestCapturesShouldBeGeneratedWhenCaptureIsMandatory(int size, String pieces, String[] longest, String[] all) {
+        Grid mandatory = new Grid(size, 0, false, true, true, true);
+        Grid optional = new Grid(size, 0, false, true, true, false);
+        placePieces(mandatory, pieces);
+        placePieces(optional, pieces);
+
+        // The same list is used for both, so the filter has to be reset by the next generation
+        MoveList moves = new MoveList();
+        mandatory.generateMoves(PlayerNum.FIRST, moves);
+        assertEquals(Arrays.asList(longest), ReferenceMoveGenerator.format(mandatory, moves));
+
+        int longestCapture = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            longestCapture = Math.max(longestCapture, MoveList.getCaptureCount(moves.get(i)));
+        }
+        for (int i = 0; i < moves.size(); ++i) {
+            assertEquals(longestCapture, MoveList.getCaptureCount(moves.get(i)));
+        }
+
+        optional.generateMoves(PlayerNum.FIRST, moves);
+        assertEquals(Arrays.asList(all), ReferenceMoveGenerator.format(optional, moves));
+        assertTrue(Arrays.asList(all).containsAll(Arrays.asList(longest)));
+
+        int shorterCaptures = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            final int captures = MoveList.getCaptureCount(moves.get(i));
+            assertTrue(captures <= longestCapture);
+            if (captures > 0 && captures < longestCapture) ++shorterCaptures;
+        }
+        assertTrue(shorterCaptures > 0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("rulesProvider")
+    void unmakeMoveShouldRestoreThePosition(
+            int size, int playerRows, boolean canMoveBackwards, boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture) {
+        Grid grid = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+        BitBoard board = grid.getBoard();
+        MoveList moves = new MoveList();
+        MoveUndo undo = new MoveUndo();
+        Random random = new Random(size);
+        int captures = 0;
+        int promotions = 0;
+
+        for (int game = 0; game < 5; ++game) {
+            PlayerNum turn = game % 2 == 0 ? PlayerNum.FIRST : PlayerNum.SECOND;
+
+            for (int ply = 0; ply < 200 && grid.generateMoves(turn, moves) > 0; ++ply) {
+                final PlayerNum[] players = new PlayerNum[board.getSquareCount()];
+                final PieceType[] pieceTypes = new PieceType[board.getSquareCount()];
+                for (int square = 0; square < board.getSquareCount(); ++square) {
+                    players[square] = board.getPlayer(square);
+                    pieceTypes[square] = board.getPieceType(square);
+                }
+                final long hash = grid.getHash();
+                final int moveCount = grid.getMoveCount();
+                final int[] counts = getPieceCounts(grid);
+
+                // Every move, so captures and promotions are unmade as well as they come up
+                for (int i = 0; i < moves.size(); ++i) {
+                    grid.makeMove(moves, i, undo);
+                    if (undo.getCapturedCount() > 0) ++captures;
+                    if (undo.isPromotion()) ++promotions;
+                    grid.unmakeMove(undo);
+
+                    for (int square = 0; square < board.getSquareCount(); ++square) {
+                        assertEquals(players[square], board.getPlayer(square));
+                        assertEquals(pieceTypes[square], board.getPieceType(square));
+                    }
+                    assertEquals(hash, grid.getHash());
+                    assertEquals(moveCount, grid.getMoveCount());
+                    assertArrayEquals(counts, getPieceCounts(grid));
+                }
+
+                grid.makeMove(moves, random.nextInt(moves.size()), undo);
+                turn = turn == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+                if (grid.isGameOver() != null) break;
+            }
+
+            grid = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+            board = grid.getBoard();
+        }
+
+        assertTrue(captures > 0);
+        assertTrue(promotions > 0);
+    }
+
+    private static int[] getPieceCounts(Grid grid) {
+        return new int[]{
+                grid.getOrdinaryCount(PlayerNum.FIRST), grid.getKingCount(PlayerNum.FIRST), grid.getMaterial(PlayerNum.FIRST),
+                grid.getOrdinaryCount(PlayerNum.SECOND), grid.getKingCount(PlayerNum.SECOND), grid.getMaterial(PlayerNum.SECOND),
+                grid.getBoard().countPieces(PlayerNum.FIRST), grid.getBoard().countKings(PlayerNum.FIRST),
+                grid.getBoard().countPieces(PlayerNum.SECOND), grid.getBoard().countKings(PlayerNum.SECOND)
+        };
+    }
+
+    @Test
+    void movableEntriesShouldBeCachedPerPlayerUntilTheBoardChanges() {
+        Grid grid = new Grid(8, 3);
+        final HashMap<GridEntry, ArrayList<Destination>> first = grid.getMovableEntries(PlayerNum.FIRST);
+        final HashMap<GridEntry, ArrayList<Destination>> second = grid.getMovableEntries(PlayerNum.SECOND);
+
+        assertTrue(first != second);
+        assertSame(first, grid.getMovableEntries(PlayerNum.FIRST));
+        assertSame(second, grid.getMovableEntries(PlayerNum.SECOND));
+
+        // Unmade move restores the position, so cached entries are valid again
+        final GridEntry src = first.keySet().iterator().next();
+        final MoveUndo undo = new MoveUndo();
+        grid.makeMove(src, first.get(src).get(0), undo);
+        final HashMap<GridEntry, ArrayList<Destination>> afterMove = grid.getMovableEntries(PlayerNum.SECOND);
+        assertTrue(afterMove != second);
+        grid.unmakeMove(undo);
+        assertSame(first, grid.getMovableEntries(PlayerNum.FIRST));
+
+        assertTrue(grid.attemptMove(src, first.get(src).get(0).getDestinationEntry()));
+        assertTrue(first != grid.getMovableEntries(PlayerNum.FIRST));
+        assertTrue(second != grid.getMovableEntries(PlayerNum.SECOND));
+    }
+
+    @ParameterizedTest
+    @MethodSource("rulesProvider")
+    void gridRestoredFromPositionShouldMatchOriginal(
+            int size, int playerRows, boolean canMoveBackwards, boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture) throws Exception {
+        Grid grid = new Grid(size, playerRows, canMoveBackwards, canCaptureBackwards, flyingKing, mandatoryCapture);
+        MoveList moves = new MoveList();
+        Random random = new Random(size);
+        PlayerNum turn = PlayerNum.FIRST;
+
+        for (int ply = 0; ply < 60 && grid.generateMoves(turn, moves) > 0; ++ply) {
+            grid.makeMove(moves, random.nextInt(moves.size()), new MoveUndo());
+            turn = turn == PlayerNum.FIRST ? PlayerNum.SECOND : PlayerNum.FIRST;
+
+            final Position position = grid.toPosition();
+            final Grid restored = new Grid(position);
+            assertEquals(position, restored.toPosition());
+            assertEquals(grid.getHash(), restored.getHash());
+            assertEquals(grid.getValue(PlayerNum.FIRST, PlayerNum.SECOND), restored.getValue(PlayerNum.FIRST, PlayerNum.SECOND));
+            assertEquals(grid.isGameOver() == null, restored.isGameOver() == null);
+            assertIncrementalStateMatchesBoard(restored);
+            for (GridEntry entry : grid) {
+                final GridEntry restoredEntry = restored.getEntryByCoords(entry.getX(), entry.getY());
+                assertEquals(entry.getPlayer(), restoredEntry.getPlayer());
+                assertEquals(entry.getPieceType(), restoredEntry.getPieceType());
+            }
+            assertEquals(grid.generateMoves(turn, moves), restored.generateMoves(turn, new MoveList()));
+
+            if (moves.isEmpty()) break;
+
+            // The position mustn't change together with the grid
+            grid.makeMove(moves, 0, new MoveUndo());
+            assertFalse(position.equals(grid.toPosition()));
+            grid = new Grid(position);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(grid.toPosition());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(grid.toPosition(), in.readObject());
+        }
+    }
+
+    private static void assertIncrementalStateMatchesBoard(Grid grid) {
+        final BitBoard board = grid.getBoard();
+        for (PlayerNum player : new PlayerNum[]{PlayerNum.FIRST, PlayerNum.SECOND}) {
+            final int kings = board.countKings(player);
+            final int ordinary = board.countPieces(player) - kings;
+
+            assertEquals(kings, grid.getKingCount(player));
+            assertEquals(ordinary, grid.getOrdinaryCount(player));
+            assertEquals(30 * ordinary + 110 * kings, grid.getMaterial(player));
+        }
+
+        int expectedValue = 0;
+        for (int square = 0; square < board.getSquareCount(); ++square) {
+            if (board.isEmpty(square)) continue;
+
+            final int x = board.getSquareX(square);
+            final int y = board.getSquareY(square);
+            final boolean first = board.isOccupiedBy(square, PlayerNum.FIRST);
+            final int value = (board.isKing(square) ? 110 : 30)
+                    + Math.abs(x + 1 - grid.getSize() / 2)
+                    + (first ? y + 1 : grid.getSize() - y);
+
+            expectedValue += first ? value : -value;
+        }
+        assertEquals(expectedValue, grid.getValue(PlayerNum.FIRST, PlayerNum.SECOND));
+        assertEquals(-expectedValue, grid.getValue(PlayerNum.SECOND, PlayerNum.FIRST));
+    }
+
+    /**
+     * Put pieces on the grid. Pieces are separated by spaces, each one given by its type - {@code f}
+     * or {@code s} for ordinary pieces of the first or the second player, upper case for kings -
+     * followed by its coordinates, e.g. {@code "F0,9 s2,7"}.
+     */
+    static void placePieces(Grid grid, String pieces) {
+        for (String piece : pieces.split(" ")) {
+            final String[] coords = piece.substring(1).split(",");
+            final char type = piece.charAt(0);
+
+            grid.setPiece(grid.getBoard().getSquare(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])),
+                    Character.toLowerCase(type) == 'f' ? PlayerNum.FIRST : PlayerNum.SECOND,
+                    Character.isUpperCase(type) ? PieceType.KING : PieceType.ORDINARY);
+        }
+    }
+
+    private static boolean capturesMatch(BitBoard board, MoveList moves, int index, Destination destination) {
+        final int captureCount = MoveList.getCaptureCount(moves.get(index));
+        final ArrayList<GridEntry> capturedPieces = destination.getCapturedPieces();
+        if (capturedPieces == null) return captureCount == 0;
+        if (capturedPieces.size() != captureCount) return false;
+
+        for (int step = 0; step < captureCount; ++step) {
+            final GridEntry captured = capturedPieces.get(step);
+            if (board.getSquare(captured.getX(), captured.getY()) != moves.getCapturedSquare(index, step)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Stream of Arguments (int size, int playerRows, boolean canMoveBackwards,
+     * boolean canCaptureBackwards, boolean flyingKing, boolean mandatoryCapture)
+     */
+    private static Stream<Arguments> rulesProvider() {
+        return Stream.of(
+                Arguments.of(8, 3, false, true, true, true),
+                Arguments.of(8, 3, false, false, false, true),
+                Arguments.of(10, 4, true, true, true, false),
+                Arguments.of(10, 4, false, true, false, false),
+                Arguments.of(12, 5, false, true, true, true),
+                Arguments.of(7, 2, true, false, true, true)
+        );
+    }
+
+    /**
+     * Moves of the first player are written as {@code "x,y-x,y"}, followed by {@code ":x,y;x,y"}
+     * with captured pieces, and sorted (see {@link ReferenceMoveGenerator}).
+     *
+     * @return Stream of Arguments (int size, boolean canMoveBackwards, boolean canCaptureBackwards,
+     * boolean flyingKing, boolean mandatoryCapture, String pieces, String[] expected)
+     */
+    private static Stream<Arguments> handWrittenMovesProvider() {
+        return Stream.of(
+                // Flying king lands anywhere behind a captured piece, and every landing square
+                // from which the capture continues is a separate path to the same destination
+                Arguments.of(10, false, true, true, true, "F0,9 s2,7 s5,8 s7,2", new String[]{
+                        "0,9-6,9:2,7;5,8",
+                        "0,9-8,1:2,7;7,2", "0,9-8,1:2,7;7,2", "0,9-8,1:2,7;7,2", "0,9-8,1:2,7;7,2",
+                        "0,9-9,0:2,7;7,2", "0,9-9,0:2,7;7,2", "0,9-9,0:2,7;7,2", "0,9-9,0:2,7;7,2"
+                }),
+                // King that can't fly only captures adjacent pieces, landing right behind them
+                Arguments.of(10, false, true, false, true, "F0,9 s1,8 s3,6 s5,8", new String[]{
+                        "0,9-4,5:1,8;3,6"
+                }),
+                // Ordinary piece captures backwards only when allowed
+                Arguments.of(8, false, true, true, true, "f3,4 s2,3 s4,5", new String[]{
+                        "3,4-1,2:2,3", "3,4-5,6:4,5"
+                }),
+                Arguments.of(8, false, false, true, true, "f3,4 s2,3 s4,5", new String[]{
+                        "3,4-5,6:4,5"
+                }),
+                // Only the longest capture is allowed when captures are mandatory
+                Arguments.of(8, false, true, true, true, "f1,0 f5,2 f7,0 s2,1 s2,3 s6,3", new String[]{
+                        "1,0-1,4:2,1;2,3"
+                }),
+                Arguments.of(8, false, true, true, false, "f1,0 f5,2 f7,0 s2,1 s2,3 s6,3", new String[]{
+                        "1,0-0,1", "1,0-1,4:2,1;2,3", "1,0-3,2:2,1", "5,2-4,3", "5,2-7,4:6,3", "7,0-6,1"
+                })
+        );
+    }
+
     /**
      * @return Stream of Arguments (int size, int x, int y)
      */
+    /**
+     * @return Stream of Arguments (int size, String pieces, String[] longest, String[] all), moves of
+     * the first player with captures mandatory and optional
+     */
+    private static Stream<Arguments> longestCaptureProvider() {
+        return Stream.of(
+                // Shorter capture of a piece generated first
+                Arguments.of(8, "f1,0 f5,2 s2,1 s6,3 s6,5", new String[]{
+                        "5,2-5,6:6,3;6,5"
+                }, new String[]{
+                        "1,0-0,1", "1,0-3,2:2,1", "5,2-4,3", "5,2-5,6:6,3;6,5", "5,2-7,4:6,3"
+                }),
+                // Shorter capture of a piece generated last
+                Arguments.of(8, "f1,0 f6,5 s2,1 s4,3 s5,6", new String[]{
+                        "1,0-5,4:2,1;4,3"
+                }, new String[]{
+                        "1,0-0,1", "1,0-3,2:2,1", "1,0-5,4:2,1;4,3", "6,5-4,7:5,6", "6,5-7,6"
+                }),
+                // Captures of equal length of several pieces are all kept
+                Arguments.of(8, "f1,0 f3,0 f7,0 s2,1 s4,1 s6,1 s4,3 s4,5", new String[]{
+                        "1,0-3,6:2,1;4,3;4,5", "1,0-7,2:2,1;4,1;6,1", "3,0-5,6:4,1;4,3;4,5", "7,0-5,6:6,1;4,3;4,5"
+                }, new String[]{
+                        "1,0-0,1", "1,0-3,2:2,1", "1,0-3,6:2,1;4,3;4,5", "1,0-5,0:2,1;4,1", "1,0-5,4:2,1;4,3",
+                        "1,0-7,2:2,1;4,1;6,1", "3,0-1,2:2,1", "3,0-3,4:4,1;4,3", "3,0-5,2:4,1", "3,0-5,6:4,1;4,3;4,5",
+                        "7,0-3,4:6,1;4,3", "7,0-5,2:6,1", "7,0-5,6:6,1;4,3;4,5"
+                }),
+                // Ordinary piece captures more than the king
+                Arguments.of(8, "F0,7 f3,0 s2,5 s4,1 s4,3", new String[]{
+                        "3,0-1,6:4,1;4,3;2,5"
+                }, new String[]{
+                        "0,7-1,6", "0,7-3,4:2,5", "0,7-5,2:2,5;4,3", "0,7-6,1:2,5;4,3", "0,7-7,0:2,5;4,3",
+                        "3,0-1,6:4,1;4,3;2,5", "3,0-2,1", "3,0-3,4:4,1;4,3", "3,0-5,2:4,1"
+                }),
+                // King captures more than the ordinary piece
+                Arguments.of(8, "F0,7 f3,0 s1,6 s3,4 s4,1 s5,4", new String[]{
+                        "0,7-6,5:1,6;3,4;5,4", "0,7-7,6:1,6;3,4;5,4"
+                }, new String[]{
+                        "0,7-2,5:1,6", "0,7-4,3:1,6;3,4", "0,7-5,2:1,6;3,4", "0,7-6,1:1,6;3,4", "0,7-6,5:1,6;3,4;5,4",
+                        "0,7-7,0:1,6;3,4", "0,7-7,6:1,6;3,4;5,4", "3,0-2,1", "3,0-5,2:4,1"
+                })
+        );
+    }
+
     private static Stream<Arguments> invalidEntryIndexesProvider() {
         return Stream.of(
                 Arguments.of(10, 10, 0),
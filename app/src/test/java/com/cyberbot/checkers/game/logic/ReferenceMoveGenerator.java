@@ -0,0 +1,276 @@
+package com.cyberbot.checkers.game.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Move generator the way {@link Grid} used to do it before {@link Grid#generateMoves(PlayerNum, MoveList)},
+ * walking {@link GridEntry} coordinates and building a tree of capture chains. It's slow and only
+ * meant as an independent point of reference for tests and benchmarks.
+ *
+ * Moves are returned as strings {@code "x,y-x,y"}, followed by {@code ":x,y;x,y"} with pieces
+ * captured in order, e.g. {@code "2,3-6,7:3,4;5,6"}, so expected moves can be written by hand.
+ */
+class ReferenceMoveGenerator {
+    private final Grid grid;
+    private final int size;
+    private final boolean canMoveBackwards;
+    private final boolean canCaptureBackwards;
+    private final boolean flyingKing;
+    private final boolean mandatoryCapture;
+
+    ReferenceMoveGenerator(Grid grid) {
+        final Position position = grid.toPosition();
+
+        this.grid = grid;
+        size = grid.getSize();
+        canMoveBackwards = position.canMoveBackwards();
+        canCaptureBackwards = position.canCaptureBackwards();
+        flyingKing = position.isFlyingKing();
+        mandatoryCapture = position.isMandatoryCapture();
+    }
+
+    /**
+     * Format moves generated by {@link Grid#generateMoves(PlayerNum, MoveList)} the same way
+     * as {@link ReferenceMoveGenerator#generate(PlayerNum)}.
+     */
+    static List<String> format(Grid grid, MoveList moves) {
+        final BitBoard board = grid.getBoard();
+        final List<String> result = new ArrayList<>();
+
+        for (int i = 0; i < moves.size(); ++i) {
+            final long move = moves.get(i);
+            final int src = MoveList.getSource(move);
+            final int dst = MoveList.getDestination(move);
+
+            final StringBuilder builder = new StringBuilder()
+                    .append(board.getSquareX(src)).append(',').append(board.getSquareY(src)).append('-')
+                    .append(board.getSquareX(dst)).append(',').append(board.getSquareY(dst));
+            for (int step = 0; step < MoveList.getCaptureCount(move); ++step) {
+                final int captured = moves.getCapturedSquare(i, step);
+                builder.append(step == 0 ? ':' : ';')
+                        .append(board.getSquareX(captured)).append(',').append(board.getSquareY(captured));
+            }
+
+            result.add(builder.toString());
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Get all legal moves of {@code player}, sorted.
+     */
+    List<String> generate(PlayerNum player) {
+        final List<Chain> captures = new ArrayList<>();
+        int longest = 1;
+
+        for (GridEntry entry : grid) {
+            if (entry.getPlayer() != player) continue;
+
+            final Chain root = new Chain(entry);
+            if (entry.getPieceType() == PieceType.KING) addKingCaptures(root, player);
+            else addOrdinaryCaptures(root, player);
+
+            final List<Chain> chains = new ArrayList<>();
+            if (mandatoryCapture) root.collectLongest(chains);
+            else root.collectAll(chains);
+
+            for (Chain chain : chains) {
+                longest = Math.max(longest, chain.length);
+                captures.add(chain);
+            }
+        }
+
+        final List<String> result = new ArrayList<>();
+        if (!mandatoryCapture || captures.isEmpty()) {
+            for (GridEntry entry : grid) {
+                if (entry.getPlayer() != player) continue;
+
+                for (GridEntry destination : getMoves(entry)) {
+                    result.add(format(entry, destination, null));
+                }
+            }
+        }
+
+        for (Chain chain : captures) {
+            if (!mandatoryCapture || chain.length == longest) {
+                result.add(format(chain.getRoot().location, chain.location, chain));
+            }
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    private static String format(GridEntry src, GridEntry dst, Chain chain) {
+        final StringBuilder builder = new StringBuilder()
+                .append(src.getX()).append(',').append(src.getY()).append('-')
+                .append(dst.getX()).append(',').append(dst.getY());
+
+        if (chain != null) {
+            final List<GridEntry> captured = new ArrayList<>();
+            for (Chain link = chain; link.previous != null; link = link.previous) {
+                captured.add(0, link.captured);
+            }
+
+            for (int i = 0; i < captured.size(); ++i) {
+                builder.append(i == 0 ? ':' : ';').append(captured.get(i).getX()).append(',').append(captured.get(i).getY());
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private boolean valid(int x, int y) {
+        return x >= 0 && y >= 0 && x < size && y < size;
+    }
+
+    private List<GridEntry> getMoves(GridEntry entry) {
+        final List<GridEntry> moves = new ArrayList<>();
+        final boolean king = entry.getPieceType() == PieceType.KING;
+
+        for (int dx = -1; dx <= 1; dx += 2) {
+            for (int dy = -1; dy <= 1; dy += 2) {
+                final boolean forward = entry.getPlayer() == PlayerNum.FIRST ? dy > 0 : dy < 0;
+                if (!king && !canMoveBackwards && !forward) continue;
+
+                int x = entry.getX() + dx;
+                int y = entry.getY() + dy;
+                while (valid(x, y) && grid.getEntryByCoords(x, y).getPlayer() == PlayerNum.NOPLAYER) {
+                    moves.add(grid.getEntryByCoords(x, y));
+                    if (!king || !flyingKing) break;
+
+                    x += dx;
+                    y += dy;
+                }
+            }
+        }
+
+        return moves;
+    }
+
+    private void addOrdinaryCaptures(Chain last, PlayerNum player) {
+        final GridEntry location = last.location;
+
+        for (int dx = -1; dx <= 1; dx += 2) {
+            for (int dy = -1; dy <= 1; dy += 2) {
+                final boolean forward = player == PlayerNum.FIRST ? dy > 0 : dy < 0;
+                if (!canCaptureBackwards && !forward) continue;
+                if (!valid(location.getX() + 2 * dx, location.getY() + 2 * dy)) continue;
+
+                final GridEntry enemy = grid.getEntryByCoords(location.getX() + dx, location.getY() + dy);
+                final GridEntry after = grid.getEntryByCoords(location.getX() + 2 * dx, location.getY() + 2 * dy);
+                if (isEnemy(enemy, player) && !last.hasCaptured(enemy) && after.getPlayer() == PlayerNum.NOPLAYER) {
+                    addOrdinaryCaptures(last.add(after, enemy), player);
+                }
+            }
+        }
+    }
+
+    private void addKingCaptures(Chain last, PlayerNum player) {
+        final GridEntry location = last.location;
+
+        for (int dx = -1; dx <= 1; dx += 2) {
+            for (int dy = -1; dy <= 1; dy += 2) {
+                // Find the first piece on the diagonal, within range of the king
+                int x = location.getX() + dx;
+                int y = location.getY() + dy;
+                while (valid(x, y) && grid.getEntryByCoords(x, y).getPlayer() == PlayerNum.NOPLAYER && flyingKing) {
+                    x += dx;
+                    y += dy;
+                }
+                if (!valid(x, y)) continue;
+
+                final GridEntry enemy = grid.getEntryByCoords(x, y);
+                if (!isEnemy(enemy, player) || last.hasCaptured(enemy)) continue;
+
+                // Land on any free square behind it
+                x += dx;
+                y += dy;
+                while (valid(x, y) && grid.getEntryByCoords(x, y).getPlayer() == PlayerNum.NOPLAYER) {
+                    addKingCaptures(last.add(grid.getEntryByCoords(x, y), enemy), player);
+                    if (!flyingKing) break;
+
+                    x += dx;
+                    y += dy;
+                }
+            }
+        }
+    }
+
+    private static boolean isEnemy(GridEntry entry, PlayerNum player) {
+        return entry.getPlayer() != PlayerNum.NOPLAYER && entry.getPlayer() != player;
+    }
+
+    /**
+     * Node of the tree of captures of a single piece. The root is the piece before capturing.
+     */
+    private static class Chain {
+        final Chain previous;
+        final GridEntry location;
+        final GridEntry captured;
+        final int length;
+        final List<Chain> next = new ArrayList<>();
+
+        Chain(GridEntry location) {
+            this(null, location, null);
+        }
+
+        private Chain(Chain previous, GridEntry location, GridEntry captured) {
+            this.previous = previous;
+            this.location = location;
+            this.captured = captured;
+            this.length = previous == null ? 0 : previous.length + 1;
+        }
+
+        Chain add(GridEntry location, GridEntry captured) {
+            final Chain chain = new Chain(this, location, captured);
+            next.add(chain);
+            return chain;
+        }
+
+        Chain getRoot() {
+            Chain chain = this;
+            while (chain.previous != null) chain = chain.previous;
+            return chain;
+        }
+
+        boolean hasCaptured(GridEntry entry) {
+            for (Chain chain = this; chain != null; chain = chain.previous) {
+                if (chain.captured == entry) return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Collect every capture of the tree, including ones that could be continued.
+         */
+        void collectAll(List<Chain> output) {
+            if (previous != null) output.add(this);
+            for (Chain chain : next) chain.collectAll(output);
+        }
+
+        /**
+         * Collect the longest of captures that can't be continued.
+         */
+        void collectLongest(List<Chain> output) {
+            final List<Chain> endpoints = new ArrayList<>();
+            collectEndpoints(endpoints);
+
+            int longest = 0;
+            for (Chain chain : endpoints) longest = Math.max(longest, chain.length);
+            for (Chain chain : endpoints) {
+                if (chain.length == longest) output.add(chain);
+            }
+        }
+
+        private void collectEndpoints(List<Chain> output) {
+            if (previous != null && next.isEmpty()) output.add(this);
+            for (Chain chain : next) chain.collectEndpoints(output);
+        }
+    }
+}